@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that background jobs run on.
+ *
+ * Jobs wait in the JobScheduler, which hands the executor at most app.jobs.executor.max-size jobs
+ * at once, so the executor has a thread for every job it is given and each one starts at once.
+ * Threads that are idle for a minute exit. Its queue only holds a job handed over by a job that
+ * is finishing, until that job's thread is free; anything more is rejected with a
+ * TaskRejectedException, and JobService records the job with status "rejected". With app.jobs.executor.virtual-threads=true the pool runs jobs on virtual threads,
+ * which suits jobs that spend most of their time waiting on IO.
+ */
+@Configuration
+public class JobExecutorConfig {
+
+  public static final String JOB_EXECUTOR = "jobExecutor";
+
+  @Value("${app.jobs.executor.max-size:4}")
+  private int maxSize;
+
+  @Value("${app.jobs.executor.virtual-threads:false}")
+  private boolean virtualThreads;
+
+  @Bean(name = JOB_EXECUTOR)
+  public ThreadPoolTaskExecutor jobExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    // a pool only grows past its core size once its queue is full, so a smaller core size would
+    // leave the jobs beyond it waiting in the queue, unseen by the JobScheduler
+    executor.setCorePoolSize(maxSize);
+    executor.setMaxPoolSize(maxSize);
+    executor.setQueueCapacity(maxSize);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setVirtualThreads(virtualThreads);
+    executor.setThreadNamePrefix("job-");
+    return executor;
+  }
+}
@@ -1,6 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BulkConflictException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyNotSupportedException;
+import edu.ucsb.cs156.example.errors.UnfinishedJobStatusException;
+import edu.ucsb.cs156.example.errors.VersionMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
@@ -10,6 +15,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +25,9 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /** the largest page a keyset-paged endpoint returns */
+  public static final int MAX_PAGE_SIZE = 1000;
+
   @Autowired
   private CurrentUserService currentUserService;
 
@@ -38,6 +48,46 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns the page size to use for a requested limit, between 1 and
+   * MAX_PAGE_SIZE.
+   * @param limit the requested page size
+   * @return the page size
+   */
+  protected static int pageSize(int limit) {
+    return Math.clamp(limit, 1, MAX_PAGE_SIZE);
+  }
+
+  /**
+   * This method returns the versions named by an If-Match header, a comma-separated list of
+   * ETags as sent by a GET. If-Match uses the strong comparison, so a weak ETag (W/"3") names no
+   * version, and neither does a tag that is not a version.
+   * @param ifMatch the If-Match header, e.g. "3" or "3", "4", or null if there is none
+   * @return the versions, null if there is no header or it holds *, which matches any current
+   *     version; an empty list never matches
+   */
+  protected static List<Long> ifMatchVersions(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank()) {
+      return null;
+    }
+    List<Long> versions = new ArrayList<>();
+    for (String part : ifMatch.split(",")) {
+      String tag = part.trim();
+      if (tag.equals("*")) {
+        return null;
+      }
+      if (tag.startsWith("W/")) {
+        continue;
+      }
+      try {
+        versions.add(Long.parseLong(tag.replace("\"", "")));
+      } catch (NumberFormatException e) {
+        // not an ETag this API sent, so it matches no version
+      }
+    }
+    return versions;
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +101,50 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the IdempotencyKeyConflictException and the BulkConflictException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ IdempotencyKeyConflictException.class, BulkConflictException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflictException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the IdempotencyKeyNotSupportedException and the
+   * UnfinishedJobStatusException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({
+    IdempotencyKeyNotSupportedException.class,
+    UnfinishedJobStatusException.class
+  })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the VersionMismatchException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ VersionMismatchException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handleVersionMismatchException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,6 +32,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 /**
@@ -41,6 +50,12 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
 
     /**
      * List all Articles
@@ -55,6 +70,42 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    /**
+     * Export all articles as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the articles
+     */
+    @Operation(summary= "Export all articles as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportArticles(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export("articles", format, articlesRepository::streamAllBy);
+    }
+
+    /**
+     * List articles a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of articles, and the cursor of the next page
+     */
+    @Operation(summary= "List articles a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Articles> pageArticles(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<Articles> rows =
+                articlesRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, Articles::getId);
+    }
+
 
     /**
      * Create a new article
@@ -128,18 +179,12 @@ public class ArticlesController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid Articles incoming) {
 
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
+        incoming.setId(id);
+        if (articlesRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
 
-        articlesRepository.save(article);
-
-        return article;
+        return incoming;
     }
 
 
@@ -157,12 +202,53 @@ public class ArticlesController extends ApiController {
     @DeleteMapping("")
     public Object deleteArticle(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        if (articlesRepository.removeById(id) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
 
-        articlesRepository.delete(article);
         return genericMessage("Articles with id %s deleted".formatted(id));
     }
 
+    /**
+     * Create many articles in one request, in a single transaction
+     *
+     * @param incoming the new articles; any ids given are ignored
+     * @return the result for each of the articles, in order, with its new id
+     */
+    @Operation(summary= "Create many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostArticles(
+            @RequestBody List<Articles> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(articlesRepository, incoming, Articles::getId);
+    }
 
-}
\ No newline at end of file
+    /**
+     * Update many articles in one request, in a single transaction
+     *
+     * @param incoming the articles, each with the id of the one it replaces
+     * @return the result for each of the articles, in order
+     */
+    @Operation(summary= "Update many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateArticles(
+            @RequestBody List<Articles> incoming) {
+        return bulkService.update(articlesRepository, incoming, Articles::getId);
+    }
+
+    /**
+     * Delete many articles in one request, in a single transaction
+     *
+     * @param ids the ids of the articles to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteArticles(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(articlesRepository, ids, Articles::getId);
+    }
+}
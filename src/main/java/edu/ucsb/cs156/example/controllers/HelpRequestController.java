@@ -2,6 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.VersionMismatchException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,19 +17,27 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 
@@ -44,6 +57,12 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * List all Help Requests
      * 
@@ -58,6 +77,43 @@ public class HelpRequestController extends ApiController {
 
     }
 
+    /**
+     * Export all help requests as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the help requests
+     */
+    @Operation(summary= "Export all help requests as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export("helprequests", format, helpRequestRepository::streamAllBy);
+    }
+
+    /**
+     * List help requests a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of help requests, and the cursor of the next page
+     */
+    @Operation(summary= "List help requests a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<HelpRequest> pageHelpRequests(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<HelpRequest> rows =
+                helpRequestRepository.findByIdGreaterThanOrderByIdAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, HelpRequest::getId);
+    }
+
 
 
 
@@ -106,17 +162,19 @@ public class HelpRequestController extends ApiController {
      * Get a single help request by id
      * 
      * @param id the id of the help request
-     * @return a HelpRequest
+     * @return a HelpRequest, with its version as the ETag
      */
     @Operation(summary= "Get a help request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public HelpRequest getById(
+    public ResponseEntity<HelpRequest> getById(
             @Parameter(name="id") @RequestParam Long id) {
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
-        return helpRequest;
+        return ResponseEntity.ok()
+                .eTag(Long.toString(helpRequest.getVersion()))
+                .body(helpRequest);
     }
 
 
@@ -125,29 +183,41 @@ public class HelpRequestController extends ApiController {
      * Update a single Help Request
      * 
      * @param id       id of the help request to update
+     * @param ifMatch  ETags of the versions that may be replaced; if omitted, any is replaced
      * @param incoming the new help request
-     * @return the updated help request object
+     * @return the updated help request object, with its new version as the ETag
      */
     @Operation(summary= "Update a single help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public HelpRequest updateHelpRequest(
+    @Transactional
+    public ResponseEntity<HelpRequest> updateHelpRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(description="ETag from a GET; 412 if the help request has changed since")
+            @RequestHeader(name=HttpHeaders.IF_MATCH, required=false) String ifMatch,
             @RequestBody @Valid HelpRequest incoming) {
 
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setSolved(incoming.getSolved());
-        helpRequest.setExplanation(incoming.getExplanation());
-
-        helpRequestRepository.save(helpRequest);
-
-        return helpRequest;
+        incoming.setId(id);
+        List<Long> versions = ifMatchVersions(ifMatch);
+        long written;
+        if (versions == null) {
+            if (helpRequestRepository.updateById(id, incoming) == 0) {
+                throw new EntityNotFoundException(HelpRequest.class, id);
+            }
+            // the row stays locked until this transaction commits, so no other write can land
+            // before the version is read back
+            written = helpRequestRepository.findVersionById(id).orElseThrow();
+        } else {
+            // the row is at one version, so at most one of those listed can match it
+            long matched = versions.stream()
+                    .filter(v -> helpRequestRepository.updateByIdAndVersion(id, v, incoming) == 1)
+                    .findFirst()
+                    .orElseThrow(() -> helpRequestRepository.existsById(id)
+                            ? new VersionMismatchException(HelpRequest.class, id)
+                            : new EntityNotFoundException(HelpRequest.class, id));
+            written = matched + 1;
+        }
+        return ResponseEntity.ok().eTag(Long.toString(written)).body(incoming);
     }
 
 
@@ -157,22 +227,71 @@ public class HelpRequestController extends ApiController {
      * Delete a Help Request
      * 
      * @param id the id of the help request to delete
+     * @param ifMatch ETags of the versions that may be deleted; if omitted, any is deleted
      * @return a message indicating the help request was deleted
      */
     @Operation(summary= "Delete a HelpRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteHelpRequest(
-            @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(description="ETag from a GET; 412 if the help request has changed since")
+            @RequestHeader(name=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        List<Long> versions = ifMatchVersions(ifMatch);
+        if (versions == null) {
+            if (helpRequestRepository.removeById(id) == 0) {
+                throw new EntityNotFoundException(HelpRequest.class, id);
+            }
+        } else if (versions.stream()
+                .noneMatch(v -> helpRequestRepository.removeByIdAndVersion(id, v) == 1)) {
+            throw helpRequestRepository.existsById(id)
+                    ? new VersionMismatchException(HelpRequest.class, id)
+                    : new EntityNotFoundException(HelpRequest.class, id);
+        }
 
-        helpRequestRepository.delete(helpRequest);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
+    /**
+     * Create many help requests in one request, in a single transaction
+     *
+     * @param incoming the new help requests; any ids given are ignored
+     * @return the result for each of the help requests, in order, with its new id
+     */
+    @Operation(summary= "Create many help requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostHelpRequests(
+            @RequestBody List<HelpRequest> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(helpRequestRepository, incoming, HelpRequest::getId);
+    }
 
+    /**
+     * Update many help requests in one request, in a single transaction
+     *
+     * @param incoming the help requests, each with the id of the one it replaces
+     * @return the result for each of the help requests, in order
+     */
+    @Operation(summary= "Update many help requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateHelpRequests(
+            @RequestBody List<HelpRequest> incoming) {
+        return bulkService.update(helpRequestRepository, incoming, HelpRequest::getId);
+    }
 
-
-
-}
\ No newline at end of file
+    /**
+     * Delete many help requests in one request, in a single transaction
+     *
+     * @param ids the ids of the help requests to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many help requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteHelpRequests(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(helpRequestRepository, ids, HelpRequest::getId);
+    }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.BulkImportJob;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTarget;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@Tag(name = "Imports")
+@RequestMapping("/api/imports")
+@RestController
+@Slf4j
+public class ImportsController extends ApiController {
+  @Autowired private JobService jobService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${app.imports.batch-size:1000}")
+  private int batchSize;
+
+  /**
+   * This method starts a job that imports a CSV or NDJSON file into a table. The upload is saved
+   * to a temporary file and the job returned straight away; the job's log lists skipped records.
+   *
+   * @param target the table, named by the path of its API, e.g. ucsbdates
+   * @param file the file; CSV needs a header row, NDJSON one JSON object per line
+   * @param format CSV or NDJSON; by default taken from the file's extension
+   * @return the job, or 404 if the target is unknown
+   * @throws IOException if the upload cannot be saved
+   */
+  @Operation(summary = "Import a CSV or NDJSON file into a table as a background job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping(value = "/{target}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<Job> importFile(
+      @Parameter(
+              name = "target",
+              description = "ucsbdates, ucsbdiningcommonsmenuitem or ucsborganizations")
+          @PathVariable
+          String target,
+      @Parameter(name = "file") @RequestParam MultipartFile file,
+      @Parameter(name = "format", description = "CSV or NDJSON; by default from the file name")
+          @RequestParam(required = false)
+          ImportFormat format)
+      throws IOException {
+    Optional<ImportTarget> importTarget = ImportTarget.fromPath(target);
+    if (importTarget.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    ImportFormat importFormat =
+        format != null ? format : ImportFormat.fromFilename(file.getOriginalFilename());
+
+    Path upload = Files.createTempFile("import-", "." + importFormat.name().toLowerCase());
+    try {
+      file.transferTo(upload);
+      BulkImportJob job =
+          BulkImportJob.builder()
+              .target(importTarget.get())
+              .format(importFormat)
+              .file(upload)
+              .batchSize(batchSize)
+              .jdbcTemplate(jdbcTemplate)
+              .transactionTemplate(transactionTemplate)
+              .build();
+      // a job that is rejected, or cancelled before it starts, deletes the upload itself
+      return ResponseEntity.ok(jobService.runAsJob(job));
+    } catch (IOException | RuntimeException e) {
+      // the job was never launched, so nothing else will delete the upload
+      Files.deleteIfExists(upload);
+      throw e;
+    }
+  }
+}
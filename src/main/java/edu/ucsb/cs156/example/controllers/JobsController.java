@@ -5,22 +5,40 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobLogPage;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -31,8 +49,15 @@ public class JobsController extends ApiController {
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobRetentionService jobRetentionService;
+
   @Autowired ObjectMapper mapper;
 
+  // a single range in the "lines" unit: first-last, first-, or -suffixLength
+  private static final Pattern LINE_RANGE = Pattern.compile("lines=(\\d*)-(\\d*)");
+
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
@@ -41,12 +66,64 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
-  @Operation(summary = "Delete all job records")
+  @Operation(
+      summary =
+          "List job summaries (no logs), newest first, a page at a time; pass next as after to"
+              + " get the following page")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/summary")
+  public KeysetPage<JobSummary> jobSummaries(
+      @Parameter(name = "status", description = "only jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdAfter", description = "only jobs created at or after this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(name = "after", description = "cursor from the previous page")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "limit", description = "page size (at most 1000)")
+          @RequestParam(defaultValue = "50")
+          int limit) {
+
+    int pageSize = pageSize(limit);
+    List<JobSummary> rows =
+        jobsRepository.findSummaries(
+            after, status, createdAfter, createdBefore, Limit.of(pageSize + 1));
+    return KeysetPage.of(rows, pageSize, JobSummary::getId);
+  }
+
+  @Operation(
+      summary =
+          "Delete finished job records, or only those with a status or created before a time,"
+              + " without loading them; includeUnfinished=true deletes jobs that are queued or"
+              + " running too")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
-  public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
-    return Map.of("message", "All jobs deleted");
+  public Map<String, String> deleteAllJobs(
+      @Parameter(
+              name = "status",
+              description =
+                  "only delete jobs with this status, which must be a finished one unless"
+                      + " includeUnfinished=true")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdBefore", description = "only delete jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(
+              name = "includeUnfinished",
+              description = "also delete jobs that are queued or running, e.g. stuck ones")
+          @RequestParam(defaultValue = "false")
+          boolean includeUnfinished) {
+    int deleted = jobRetentionService.deleteMatching(status, createdBefore, includeUnfinished);
+    return Map.of("message", String.format("%d jobs deleted", deleted));
   }
 
   @Operation(summary = "Get a specific Job Log by ID if it is in the database")
@@ -78,20 +155,137 @@ public class JobsController extends ApiController {
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "timeoutMs", description = "stop the job if it runs longer than this")
+          @RequestParam(required = false)
+          Long timeoutMs,
+      @Parameter(name = "priority", description = "jobs with a higher priority run first")
+          @RequestParam(defaultValue = "0")
+          int priority,
+      @Parameter(
+              name = "Idempotency-Key",
+              description =
+                  "relaunching with the same key while the job is queued or running returns the"
+                      + " same job")
+          @RequestHeader(value = "Idempotency-Key", required = false)
+          String idempotencyKey) {
 
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobService.runAsJob(
+        testJob,
+        timeoutMs != null ? Duration.ofMillis(timeoutMs) : null,
+        priority,
+        idempotencyKey);
   }
 
+  @Operation(
+      summary =
+          "Cancel a job that is queued or running; a running job stops at its next checkpoint or"
+              + " blocking call")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Job cancelJob(@Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    return jobService.cancel(id);
+  }
 
-  @Operation(summary = "Get long job logs")
+  @Operation(
+      summary =
+          "Get long job logs; pass offset/limit or tail, or a Range: lines=first-last header, to"
+              + " get only part of the log")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public ResponseEntity<String> getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "index of the first line to return")
+          @RequestParam(required = false)
+          Long offset,
+      @Parameter(name = "limit", description = "maximum number of lines to return")
+          @RequestParam(required = false)
+          Long limit,
+      @Parameter(name = "tail", description = "return only the last tail lines")
+          @RequestParam(required = false)
+          Long tail,
+      @Parameter(name = "Range", description = "line range, e.g. lines=0-99 or lines=-50")
+          @RequestHeader(value = "Range", required = false)
+          String range) {
+
+    if ((offset != null && offset < 0)
+        || (limit != null && limit < 0)
+        || (tail != null && tail < 0)) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    Matcher rangeMatcher = range != null ? LINE_RANGE.matcher(range.trim()) : null;
+    if (rangeMatcher != null && rangeMatcher.matches()) {
+      return getJobLogRange(id, rangeMatcher);
+    }
+
+    if (offset == null && limit == null && tail == null) {
+      return ResponseEntity.ok()
+          .header(HttpHeaders.ACCEPT_RANGES, "lines")
+          .body(jobService.getJobLogs(id));
+    }
+
+    JobLogPage page =
+        tail != null
+            ? jobService.getJobLogLines(id, -tail, tail)
+            : jobService.getJobLogLines(
+                id, offset != null ? offset : 0, limit != null ? limit : Long.MAX_VALUE);
+    return ResponseEntity.ok()
+        .header(HttpHeaders.ACCEPT_RANGES, "lines")
+        .header("X-Log-Offset", Long.toString(page.getOffset()))
+        .header("X-Log-Total-Lines", Long.toString(page.getTotal()))
+        .body(String.join("\n", page.getLines()));
+  }
+
+  private ResponseEntity<String> getJobLogRange(Long id, Matcher range) {
+    String first = range.group(1);
+    String last = range.group(2);
+    if (first.isEmpty() && last.isEmpty()) {
+      return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+    }
+
+    JobLogPage page;
+    try {
+      if (first.isEmpty()) {
+        long suffix = Long.parseLong(last);
+        page = jobService.getJobLogLines(id, -suffix, suffix);
+      } else {
+        long start = Long.parseLong(first);
+        long count =
+            last.isEmpty() ? Long.MAX_VALUE : Math.addExact(Long.parseLong(last) - start, 1);
+        page = jobService.getJobLogLines(id, start, Math.max(count, 0));
+      }
+    } catch (NumberFormatException | ArithmeticException e) {
+      // a bound too large for a long can't be satisfied; read no lines, just the total
+      page = jobService.getJobLogLines(id, 0, 0);
+    }
 
-    return jobService.getJobLogs(id);
+    if (page.getLines().isEmpty()) {
+      return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+          .header(HttpHeaders.CONTENT_RANGE, "lines */%d".formatted(page.getTotal()))
+          .build();
+    }
+    long end = page.getOffset() + page.getLines().size() - 1;
+    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+        .header(HttpHeaders.ACCEPT_RANGES, "lines")
+        .header(
+            HttpHeaders.CONTENT_RANGE,
+            "lines %d-%d/%d".formatted(page.getOffset(), end, page.getTotal()))
+        .body(String.join("\n", page.getLines()));
   }
 
+  @Operation(
+      summary =
+          "Stream job log lines as Server-Sent Events; reconnect with Last-Event-ID to resume")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "Last-Event-ID", description = "sequence number of the last line received")
+          @RequestHeader(value = "Last-Event-ID", required = false)
+          Long lastEventId) {
 
+    return jobLogStreamService.subscribe(id, lastEventId != null ? lastEventId : -1);
+  }
 }
@@ -2,6 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.VersionMismatchException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,19 +17,27 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 /**
@@ -40,6 +53,12 @@ public class MenuItemReviewController extends ApiController{
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * List all Menu Item Reviews
      * 
@@ -53,21 +72,61 @@ public class MenuItemReviewController extends ApiController{
         return reviews;
     }
 
+    /**
+     * Export all menu item reviews as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the menu item reviews
+     */
+    @Operation(summary= "Export all menu item reviews as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMenuItemReviews(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export(
+                "menuitemreviews", format, menuItemReviewRepository::streamAllBy);
+    }
+
+    /**
+     * List menu item reviews a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of menu item reviews, and the cursor of the next page
+     */
+    @Operation(summary= "List menu item reviews a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<MenuItemReview> pageMenuItemReviews(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<MenuItemReview> rows =
+                menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, MenuItemReview::getId);
+    }
+
     /**
      * Get a single review by id
      * 
      * @param id the id of the review
-     * @return a MenuItemReview
+     * @return a MenuItemReview, with its version as the ETag
      */
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public MenuItemReview getById(
+    public ResponseEntity<MenuItemReview> getById(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
-        return menuItemReview;
+        return ResponseEntity.ok()
+                .eTag(Long.toString(menuItemReview.getVersion()))
+                .body(menuItemReview);
     }
 
      /**
@@ -112,46 +171,113 @@ public class MenuItemReviewController extends ApiController{
      * Update a single review
      * 
      * @param id       id of the review to update
+     * @param ifMatch  ETags of the versions that may be replaced; if omitted, any is replaced
      * @param incoming the new review
-     * @return the updated review object
+     * @return the updated review object, with its new version as the ETag
      */
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public MenuItemReview updateMenuItemReview(
+    @Transactional
+    public ResponseEntity<MenuItemReview> updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(description="ETag from a GET; 412 if the review has changed since")
+            @RequestHeader(name=HttpHeaders.IF_MATCH, required=false) String ifMatch,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-        
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
-
-        menuItemReviewRepository.save(menuItemReview);
-
-        return menuItemReview;
+        incoming.setId(id);
+        List<Long> versions = ifMatchVersions(ifMatch);
+        long written;
+        if (versions == null) {
+            if (menuItemReviewRepository.updateById(id, incoming) == 0) {
+                throw new EntityNotFoundException(MenuItemReview.class, id);
+            }
+            // the row stays locked until this transaction commits, so no other write can land
+            // before the version is read back
+            written = menuItemReviewRepository.findVersionById(id).orElseThrow();
+        } else {
+            // the row is at one version, so at most one of those listed can match it
+            long matched = versions.stream()
+                    .filter(v ->
+                            menuItemReviewRepository.updateByIdAndVersion(id, v, incoming) == 1)
+                    .findFirst()
+                    .orElseThrow(() -> menuItemReviewRepository.existsById(id)
+                            ? new VersionMismatchException(MenuItemReview.class, id)
+                            : new EntityNotFoundException(MenuItemReview.class, id));
+            written = matched + 1;
+        }
+        return ResponseEntity.ok().eTag(Long.toString(written)).body(incoming);
     }
 
     /**
      * Delete a MenuItemReview
      * 
      * @param id the id of the review to delete
+     * @param ifMatch ETags of the versions that may be deleted; if omitted, any is deleted
      * @return a message indicating the review was deleted
      */
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("/delete")
     public Object deleteMenuItemReview(
-            @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(description="ETag from a GET; 412 if the review has changed since")
+            @RequestHeader(name=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        List<Long> versions = ifMatchVersions(ifMatch);
+        if (versions == null) {
+            if (menuItemReviewRepository.removeById(id) == 0) {
+                throw new EntityNotFoundException(MenuItemReview.class, id);
+            }
+        } else if (versions.stream()
+                .noneMatch(v -> menuItemReviewRepository.removeByIdAndVersion(id, v) == 1)) {
+            throw menuItemReviewRepository.existsById(id)
+                    ? new VersionMismatchException(MenuItemReview.class, id)
+                    : new EntityNotFoundException(MenuItemReview.class, id);
+        }
 
-        menuItemReviewRepository.delete(menuItemReview);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
-}
\ No newline at end of file
+    /**
+     * Create many menu item reviews in one request, in a single transaction
+     *
+     * @param incoming the new menu item reviews; any ids given are ignored
+     * @return the result for each of the menu item reviews, in order, with its new id
+     */
+    @Operation(summary= "Create many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostMenuItemReviews(
+            @RequestBody List<MenuItemReview> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(menuItemReviewRepository, incoming, MenuItemReview::getId);
+    }
+
+    /**
+     * Update many menu item reviews in one request, in a single transaction
+     *
+     * @param incoming the menu item reviews, each with the id of the one it replaces
+     * @return the result for each of the menu item reviews, in order
+     */
+    @Operation(summary= "Update many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateMenuItemReviews(
+            @RequestBody List<MenuItemReview> incoming) {
+        return bulkService.update(menuItemReviewRepository, incoming, MenuItemReview::getId);
+    }
+
+    /**
+     * Delete many menu item reviews in one request, in a single transaction
+     *
+     * @param ids the ids of the menu item reviews to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteMenuItemReviews(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(menuItemReviewRepository, ids, MenuItemReview::getId);
+    }
+}
@@ -1,6 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 
@@ -12,6 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,6 +32,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 /**
@@ -41,6 +50,12 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
 
     @Operation(summary = "Get all recommendation requests")
     @GetMapping("/all") // get all records in the table and return as a JSON array
@@ -50,6 +65,44 @@ public class RecommendationRequestController extends ApiController {
         return requests;
     }
 
+    /**
+     * Export all recommendation requests as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the recommendation requests
+     */
+    @Operation(summary= "Export all recommendation requests as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export(
+                "recommendationrequests", format, recommendationRequestRepository::streamAllBy);
+    }
+
+    /**
+     * List recommendation requests a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of recommendation requests, and the cursor of the next page
+     */
+    @Operation(summary= "List recommendation requests a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<RecommendationRequest> pageRecommendationRequests(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<RecommendationRequest> rows =
+                recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, RecommendationRequest::getId);
+    }
+
 
     @Operation(summary = "Create a new recommendation request")
     @PostMapping("/post") // Use the data in the input parameters to create a new row in the table and return the data as JSON
@@ -98,10 +151,10 @@ public class RecommendationRequestController extends ApiController {
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("/delete")
     public Object deleteRecommendationRequest(@RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        if (recommendationRequestRepository.removeById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
 
-        recommendationRequestRepository.delete(recommendationRequest);
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
   
@@ -114,19 +167,57 @@ public class RecommendationRequestController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid RecommendationRequest incoming) {
 
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        incoming.setId(id);
+        if (recommendationRequestRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
 
-        recommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
-        recommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
-        recommendationRequest.setExplanation(incoming.getExplanation());
-        recommendationRequest.setDateRequested(incoming.getDateRequested());
-        recommendationRequest.setDateNeeded(incoming.getDateNeeded());
-        recommendationRequest.setDone(incoming.getDone());
+        return incoming;
+    }
 
-        recommendationRequestRepository.save(recommendationRequest);
+    /**
+     * Create many recommendation requests in one request, in a single transaction
+     *
+     * @param incoming the new recommendation requests; any ids given are ignored
+     * @return the result for each of the recommendation requests, in order, with its new id
+     */
+    @Operation(summary= "Create many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostRecommendationRequests(
+            @RequestBody List<RecommendationRequest> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(
+                recommendationRequestRepository, incoming, RecommendationRequest::getId);
+    }
 
-        return recommendationRequest;
+    /**
+     * Update many recommendation requests in one request, in a single transaction
+     *
+     * @param incoming the recommendation requests, each with the id of the one it replaces
+     * @return the result for each of the recommendation requests, in order
+     */
+    @Operation(summary= "Update many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateRecommendationRequests(
+            @RequestBody List<RecommendationRequest> incoming) {
+        return bulkService.update(
+                recommendationRequestRepository, incoming, RecommendationRequest::getId);
     }
 
+    /**
+     * Delete many recommendation requests in one request, in a single transaction
+     *
+     * @param ids the ids of the recommendation requests to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteRecommendationRequests(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(
+                recommendationRequestRepository, ids, RecommendationRequest::getId);
+    }
 }
@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,6 +13,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +28,9 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
+
 /**
  * This is a REST controller for Restaurants
  */
@@ -33,6 +43,12 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * This method returns a list of all restaurants.
      * @return a list of all restaurants
@@ -45,6 +61,42 @@ public class RestaurantsController extends ApiController {
         return restaurants;
     }
 
+    /**
+     * Export all restaurants as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the restaurants
+     */
+    @Operation(summary= "Export all restaurants as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRestaurants(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export("restaurants", format, restaurantRepository::streamAllBy);
+    }
+
+    /**
+     * List restaurants a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of restaurants, and the cursor of the next page
+     */
+    @Operation(summary= "List restaurants a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Restaurant> pageRestaurants(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<Restaurant> rows =
+                restaurantRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, Restaurant::getId);
+    }
+
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
@@ -92,10 +144,10 @@ public class RestaurantsController extends ApiController {
     @DeleteMapping("")
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        if (restaurantRepository.removeById(id) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
 
-        restaurantRepository.delete(restaurant);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
@@ -112,14 +164,54 @@ public class RestaurantsController extends ApiController {
             @Parameter(name = "id") @RequestParam Long id,
             @RequestBody @Valid Restaurant incoming) {
 
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        incoming.setId(id);
+        if (restaurantRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
 
-        restaurant.setName(incoming.getName());
-        restaurant.setDescription(incoming.getDescription());
+        return incoming;
+    }
 
-        restaurantRepository.save(restaurant);
+    /**
+     * Create many restaurants in one request, in a single transaction
+     *
+     * @param incoming the new restaurants; any ids given are ignored
+     * @return the result for each of the restaurants, in order, with its new id
+     */
+    @Operation(summary= "Create many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostRestaurants(
+            @RequestBody List<Restaurant> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(restaurantRepository, incoming, Restaurant::getId);
+    }
 
-        return restaurant;
+    /**
+     * Update many restaurants in one request, in a single transaction
+     *
+     * @param incoming the restaurants, each with the id of the one it replaces
+     * @return the result for each of the restaurants, in order
+     */
+    @Operation(summary= "Update many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateRestaurants(
+            @RequestBody List<Restaurant> incoming) {
+        return bulkService.update(restaurantRepository, incoming, Restaurant::getId);
+    }
+
+    /**
+     * Delete many restaurants in one request, in a single transaction
+     *
+     * @param ids the ids of the restaurants to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteRestaurants(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(restaurantRepository, ids, Restaurant::getId);
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,6 +32,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 /**
@@ -40,6 +49,12 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * List all UCSB dates
      * 
@@ -53,6 +68,42 @@ public class UCSBDatesController extends ApiController {
         return dates;
     }
 
+    /**
+     * Export all ucsb dates as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the ucsb dates
+     */
+    @Operation(summary= "Export all ucsb dates as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export("ucsbdates", format, ucsbDateRepository::streamAllBy);
+    }
+
+    /**
+     * List ucsb dates a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of ucsb dates, and the cursor of the next page
+     */
+    @Operation(summary= "List ucsb dates a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDate> pageUCSBDates(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDate> rows =
+                ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, UCSBDate::getId);
+    }
+
     /**
      * Get a single date by id
      * 
@@ -113,10 +164,10 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        if (ucsbDateRepository.removeById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
 
-        ucsbDateRepository.delete(ucsbDate);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -134,15 +185,54 @@ public class UCSBDatesController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDate incoming) {
 
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        incoming.setId(id);
+        if (ucsbDateRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+        return incoming;
+    }
 
-        ucsbDateRepository.save(ucsbDate);
+    /**
+     * Create many ucsb dates in one request, in a single transaction
+     *
+     * @param incoming the new ucsb dates; any ids given are ignored
+     * @return the result for each of the ucsb dates, in order, with its new id
+     */
+    @Operation(summary= "Create many ucsb dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostUCSBDates(
+            @RequestBody List<UCSBDate> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(0));
+        return bulkService.insert(ucsbDateRepository, incoming, UCSBDate::getId);
+    }
 
-        return ucsbDate;
+    /**
+     * Update many ucsb dates in one request, in a single transaction
+     *
+     * @param incoming the ucsb dates, each with the id of the one it replaces
+     * @return the result for each of the ucsb dates, in order
+     */
+    @Operation(summary= "Update many ucsb dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateUCSBDates(
+            @RequestBody List<UCSBDate> incoming) {
+        return bulkService.update(ucsbDateRepository, incoming, UCSBDate::getId);
+    }
+
+    /**
+     * Delete many ucsb dates in one request, in a single transaction
+     *
+     * @param ids the ids of the ucsb dates to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many ucsb dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteUCSBDates(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(ucsbDateRepository, ids, UCSBDate::getId);
     }
 }
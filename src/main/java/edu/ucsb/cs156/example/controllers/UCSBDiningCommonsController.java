@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +14,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +29,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,6 +44,12 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
      * @return a list of all ucsbdiningcommons
@@ -47,6 +62,44 @@ public class UCSBDiningCommonsController extends ApiController {
         return commons;
     }
 
+    /**
+     * Export all ucsb dining commons as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the ucsb dining commons
+     */
+    @Operation(summary= "Export all ucsb dining commons as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCommons(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export(
+                "ucsbdiningcommons", format, ucsbDiningCommonsRepository::streamAllBy);
+    }
+
+    /**
+     * List ucsb dining commons a page at a time, in code order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of ucsb dining commons, and the cursor of the next page
+     */
+    @Operation(summary= "List ucsb dining commons a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommons> pageCommons(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "") String after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDiningCommons> rows =
+                ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, UCSBDiningCommons::getCode);
+    }
+
     /**
      * This method returns a single diningcommons.
      * @param code code of the diningcommons
@@ -112,10 +165,10 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        if (ucsbDiningCommonsRepository.removeById(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
 
-        ucsbDiningCommonsRepository.delete(commons);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -132,19 +185,54 @@ public class UCSBDiningCommonsController extends ApiController {
             @Parameter(name="code") @RequestParam String code,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        incoming.setCode(code);
+        if (ucsbDiningCommonsRepository.updateById(code, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
 
+        return incoming;
+    }
 
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
+    /**
+     * Create or replace many dining commons in one request, in a single transaction
+     *
+     * @param incoming the dining commons; each replaces any with the same code
+     * @return the result for each of the dining commons, in order
+     */
+    @Operation(summary= "Create or replace many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostUCSBDiningCommons(
+            @RequestBody List<UCSBDiningCommons> incoming) {
+        return bulkService.save(ucsbDiningCommonsRepository, incoming, UCSBDiningCommons::getCode);
+    }
 
-        ucsbDiningCommonsRepository.save(commons);
+    /**
+     * Update many dining commons in one request, in a single transaction
+     *
+     * @param incoming the dining commons, each with the code of the one it replaces
+     * @return the result for each of the dining commons, in order
+     */
+    @Operation(summary= "Update many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateUCSBDiningCommons(
+            @RequestBody List<UCSBDiningCommons> incoming) {
+        return bulkService.update(
+                ucsbDiningCommonsRepository, incoming, UCSBDiningCommons::getCode);
+    }
 
-        return commons;
+    /**
+     * Delete many dining commons in one request, in a single transaction
+     *
+     * @param codes the codes of the dining commons to delete
+     * @return the result for each code, in order
+     */
+    @Operation(summary= "Delete many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteUCSBDiningCommons(
+            @RequestBody List<String> codes) {
+        return bulkService.delete(ucsbDiningCommonsRepository, codes, UCSBDiningCommons::getCode);
     }
 }
@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,6 +32,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 /**
@@ -40,6 +49,12 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * List all UCSB dates
      * 
@@ -53,6 +68,46 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         return menuItems;
     }
 
+    /**
+     * Export all ucsb dining commons menu items as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the ucsb dining commons menu items
+     */
+    @Operation(summary= "Export all ucsb dining commons menu items as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export(
+                "ucsbdiningcommonsmenuitems",
+                format,
+                ucsbDiningCommonsMenuItemRepository::streamAllBy);
+    }
+
+    /**
+     * List ucsb dining commons menu items a page at a time, in id order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of ucsb dining commons menu items, and the cursor of the next page
+     */
+    @Operation(summary= "List ucsb dining commons menu items a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItems(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDiningCommonsMenuItem> rows =
+                ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, UCSBDiningCommonsMenuItem::getId);
+    }
+
      /**
      * Get a single UCSBDiningCommonsMenuItem by id
      * 
@@ -111,16 +166,12 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-        ucsbDiningCommonsMenuItem.setName(incoming.getName());
-        ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
-
-        ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
+        incoming.setId(id);
+        if (ucsbDiningCommonsMenuItemRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
 
-        return ucsbDiningCommonsMenuItem;
+        return incoming;
     }
 
      /**
@@ -134,10 +185,56 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        if (ucsbDiningCommonsMenuItemRepository.removeById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
 
-        ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
+
+    /**
+     * Create many menu items in one request, in a single transaction
+     *
+     * @param incoming the new menu items; any ids given are ignored
+     * @return the result for each of the menu items, in order, with its new id
+     */
+    @Operation(summary= "Create many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostUCSBDiningCommonsMenuItems(
+            @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+        incoming.stream().filter(Objects::nonNull).forEach(item -> item.setId(null));
+        return bulkService.insert(
+                ucsbDiningCommonsMenuItemRepository, incoming, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Update many menu items in one request, in a single transaction
+     *
+     * @param incoming the menu items, each with the id of the one it replaces
+     * @return the result for each of the menu items, in order
+     */
+    @Operation(summary= "Update many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateUCSBDiningCommonsMenuItems(
+            @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+        return bulkService.update(
+                ucsbDiningCommonsMenuItemRepository, incoming, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Delete many menu items in one request, in a single transaction
+     *
+     * @param ids the ids of the menu items to delete
+     * @return the result for each id, in order
+     */
+    @Operation(summary= "Delete many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteUCSBDiningCommonsMenuItems(
+            @RequestBody List<Long> ids) {
+        return bulkService.delete(
+                ucsbDiningCommonsMenuItemRepository, ids, UCSBDiningCommonsMenuItem::getId);
+    }
 }
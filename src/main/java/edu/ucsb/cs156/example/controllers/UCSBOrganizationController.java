@@ -2,6 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.bulk.BulkService;
+import edu.ucsb.cs156.example.services.exports.ExportService;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +14,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +29,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBOrganizations")
 @RequestMapping("/api/ucsborganizations")
 @RestController
@@ -31,6 +40,12 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    BulkService bulkService;
+
     /**
      * This method returns a list of all UCSB organizations.
      * @return a list of all UCSB organizations
@@ -42,6 +57,44 @@ public class UCSBOrganizationController extends ApiController {
         return ucsbOrganizationRepository.findAll();
     }
 
+    /**
+     * Export all UCSB organizations as JSON, NDJSON or CSV, streamed from the database
+     *
+     * @param format json (an array, as /all returns), ndjson (one object per line) or csv
+     * @return a response streaming the UCSB organizations
+     */
+    @Operation(summary= "Export all UCSB organizations as JSON, NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrganizations(
+            @Parameter(name="format", description="json, ndjson or csv")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export(
+                "ucsborganizations", format, ucsbOrganizationRepository::streamAllBy);
+    }
+
+    /**
+     * List UCSB organizations a page at a time, in orgCode order
+     *
+     * @param after cursor from the previous page; omit for the first page
+     * @param limit page size (at most 1000)
+     * @return a page of UCSB organizations, and the cursor of the next page
+     */
+    @Operation(summary= "List UCSB organizations a page at a time, by keyset")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBOrganization> pageOrganizations(
+            @Parameter(name="after", description="cursor from the previous page")
+            @RequestParam(defaultValue = "") String after,
+            @Parameter(name="limit", description="page size (at most 1000)")
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBOrganization> rows =
+                ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(
+                        after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, UCSBOrganization::getOrgCode);
+    }
+
     /**
      * This method returns a single UCSB organization.
      * Accepts both `id` and `orgCode` as parameters.
@@ -96,10 +149,10 @@ public class UCSBOrganizationController extends ApiController {
             @RequestParam(required = false) String orgCode) {
         String identifier = orgCode;
 
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(identifier)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, identifier));
+        if (ucsbOrganizationRepository.removeById(identifier) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, identifier);
+        }
 
-        ucsbOrganizationRepository.delete(organization);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(identifier));
     }
 
@@ -118,16 +171,55 @@ public class UCSBOrganizationController extends ApiController {
 
         String identifier = orgCode;
 
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(identifier)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, identifier));
+        incoming.setOrgCode(identifier);
+        if (ucsbOrganizationRepository.updateById(identifier, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, identifier);
+        }
 
-        // organization.setOrgCode(incoming.getOrgCode());
-        organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        organization.setOrgTranslation(incoming.getOrgTranslation());
-        organization.setInactive(incoming.getInactive());
+        return incoming;
+    }
 
-        ucsbOrganizationRepository.save(organization);
+    /**
+     * Create or replace many organizations in one request, in a single transaction
+     *
+     * @param incoming the organizations; each replaces any with the same orgCode
+     * @return the result for each of the organizations, in order
+     */
+    @Operation(summary= "Create or replace many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkPostUCSBOrganizations(
+            @RequestBody List<UCSBOrganization> incoming) {
+        return bulkService.save(ucsbOrganizationRepository, incoming, UCSBOrganization::getOrgCode);
+    }
 
-        return organization;
+    /**
+     * Update many organizations in one request, in a single transaction
+     *
+     * @param incoming the organizations, each with the orgCode of the one it replaces
+     * @return the result for each of the organizations, in order
+     */
+    @Operation(summary= "Update many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkUpdateUCSBOrganizations(
+            @RequestBody List<UCSBOrganization> incoming) {
+        return bulkService.update(
+                ucsbOrganizationRepository, incoming, UCSBOrganization::getOrgCode);
+    }
+
+    /**
+     * Delete many organizations in one request, in a single transaction
+     *
+     * @param orgCodes the orgCodes of the organizations to delete
+     * @return the result for each orgCode, in order
+     */
+    @Operation(summary= "Delete many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> bulkDeleteUCSBOrganizations(
+            @RequestBody List<String> orgCodes) {
+        return bulkService.delete(
+                ucsbOrganizationRepository, orgCodes, UCSBOrganization::getOrgCode);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the gzip-compressed log of a finished Job.
+ *
+ * Large logs are moved here when they are compacted, in a table of their own so that loading a
+ * Job never loads its compressed log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "compressed_job_logs")
+public class CompressedJobLog {
+  @Id private long jobId;
+
+  /** number of lines in the log, so that a range can be read without decompressing it all */
+  private long lineCount;
+
+  /** size of the log before compression, in bytes */
+  private long uncompressedSize;
+
+  /** the log, lines separated by \n, compressed with gzip */
+  private byte[] data;
+}
@@ -1,9 +1,12 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,7 +27,10 @@ import java.time.LocalDateTime;
 
 public class HelpRequest {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequest_seq")
+  @SequenceGenerator(
+      name = "helprequest_seq", sequenceName = "helprequest_seq",
+      allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -34,4 +40,9 @@ public class HelpRequest {
   private String explanation;
   private boolean solved;
 
+  /** incremented by every update; sent as the ETag rather than in the body */
+  @Version
+  @JsonIgnore
+  private long version;
+
 }
\ No newline at end of file
@@ -16,7 +16,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+  @SequenceGenerator(name = "jobs_seq", sequenceName = "jobs_seq", allocationSize = 50)
   private long id;
 
   @JsonIgnore
@@ -29,6 +30,44 @@ public class Job {
 
   private String status;
 
+  // set for jobs that are queued in the database rather than run in-process;
+  // jobType is the class of the DurableJob and payload is its JSON
+  private String jobType;
+
+  @Column(columnDefinition = "TEXT")
+  private String payload;
+
+  // the worker that has claimed a queued job holds it until leaseExpiresAt,
+  // renewing the lease on every heartbeat; a job whose lease runs out is requeued
+  private String claimedBy;
+  private ZonedDateTime leaseExpiresAt;
+  private ZonedDateTime heartbeatAt;
+  private int attempts;
+
+  // wall-clock limit on a run of the job; when it passes the job is interrupted
+  // and its status becomes timed_out. Null means no limit.
+  private Long timeoutMs;
+
+  // jobs with a higher priority run first
+  private int priority;
+
+  // client-supplied key that makes launching the same job twice return the first job;
+  // released (set to null) once the job has finished and the key is reused
+  private String idempotencyKey;
+
+  // hash of the job's type and parameters, to tell a retried launch from a different job
+  // launched with the same key
+  @JsonIgnore
+  private String requestHash;
+
+  // reported by the job with JobContext.progress; null until it first reports
+  private Long progressDone;
+  private Long progressTotal;
+
+  // number of lines in the log, recorded when the job finishes and again when its log is
+  // compacted, so that listing jobs need not count them; null until the job finishes
+  private Long logLines;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
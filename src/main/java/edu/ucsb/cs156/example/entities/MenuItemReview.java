@@ -1,9 +1,12 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,7 +25,10 @@ import java.time.LocalDateTime;
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+  @SequenceGenerator(
+      name = "menuitemreview_seq", sequenceName = "menuitemreview_seq",
+      allocationSize = 50)
   private long id;
 
   private long itemId;
@@ -30,4 +36,9 @@ public class MenuItemReview {
   private int stars;
   private LocalDateTime dateReviewed;
   private String comments;
+
+  /** incremented by every update; sent as the ETag rather than in the body */
+  @Version
+  @JsonIgnore
+  private long version;
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package edu.ucsb.cs156.example.entities;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import lombok.AllArgsConstructor;
@@ -22,7 +23,10 @@ import java.util.Date;
 @Entity(name = "recommendationrequests")
 public class RecommendationRequest {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequests_seq")
+  @SequenceGenerator(
+      name = "recommendationrequests_seq", sequenceName = "recommendationrequests_seq",
+      allocationSize = 50)
   private long id;
   private String requesterEmail;
   private String professorEmail;
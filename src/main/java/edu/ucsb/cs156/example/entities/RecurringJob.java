@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that records when a recurring job last ran.
+ *
+ * Every instance runs the same schedules; the row for a schedule is the lock that lets only one of
+ * them start each run.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "recurring_jobs")
+public class RecurringJob {
+  @Id private String name;
+
+  /** scheduled time of the last run, on whichever instance started it */
+  private ZonedDateTime lastFiredAt;
+
+  /** the Job of the last run, so that a run still going is not overlapped */
+  private Long lastJobId;
+}
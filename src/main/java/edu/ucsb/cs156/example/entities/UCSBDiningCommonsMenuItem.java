@@ -2,6 +2,7 @@ package edu.ucsb.cs156.example.entities;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Table;
@@ -23,7 +24,10 @@ import lombok.NoArgsConstructor;
 public class UCSBDiningCommonsMenuItem {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdiningcommonsmenuitems_seq")
+  @SequenceGenerator(
+      name = "ucsbdiningcommonsmenuitems_seq", sequenceName = "ucsbdiningcommonsmenuitems_seq",
+      allocationSize = 50)
   private Long id;
 
   private String diningCommonsCode;
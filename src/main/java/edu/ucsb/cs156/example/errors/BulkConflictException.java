@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that the items of a bulk request break a constraint of the table, so none were written.
+ */
+public class BulkConflictException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param cause the error from the database
+   */
+  public BulkConflictException(Throwable cause) {
+    super("The items break a constraint of the table, so none were written", cause);
+  }
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that an idempotency key is already in use by a different request.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param key the idempotency key
+   * @param jobId id of the job already launched with the key
+   */
+  public IdempotencyKeyConflictException(String key, long jobId) {
+    super("Idempotency key %s is already in use by job %d with different parameters"
+      .formatted(key, jobId));
+  }
+}
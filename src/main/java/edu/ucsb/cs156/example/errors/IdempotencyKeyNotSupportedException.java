@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a job was launched with an idempotency key but is not a job that can take one.
+ */
+public class IdempotencyKeyNotSupportedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param jobType class of the job
+   */
+  public IdempotencyKeyNotSupportedException(Class<?> jobType) {
+    super("Job %s is not a DurableJob, so it cannot be launched with an idempotency key"
+      .formatted(jobType.getName()));
+  }
+}
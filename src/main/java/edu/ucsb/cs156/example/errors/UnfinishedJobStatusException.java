@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.util.Collection;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that jobs were to be deleted by a status that jobs which have not finished may have.
+ */
+public class UnfinishedJobStatusException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param status the status asked for
+   * @param finishedStatuses the statuses of finished jobs
+   */
+  public UnfinishedJobStatusException(String status, Collection<String> finishedStatuses) {
+    super(("Only finished jobs are deleted unless includeUnfinished=true, and %s is not one"
+      + " of %s").formatted(status, finishedStatuses));
+  }
+}
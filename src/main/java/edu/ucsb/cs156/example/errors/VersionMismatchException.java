@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that an entity has been changed since the version named in an If-Match header.
+ */
+public class VersionMismatchException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType entity type
+   * @param id id of the entity
+   */
+  public VersionMismatchException(Class<?> entityType, Object id) {
+    super("%s with id %s has been changed since the version in If-Match"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
@@ -0,0 +1,160 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTarget;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports an uploaded file into a table. Records are read one at a time and inserted in JDBC
+ * batches of batchSize rows, each batch in its own transaction, so memory use does not grow with
+ * the file and rows imported before a failure or cancellation stay imported. Invalid records are
+ * logged and skipped. The file is deleted when the job finishes, or is discarded without
+ * running.
+ */
+public class BulkImportJob implements JobContextConsumer {
+  // at most this many skipped records are logged individually
+  static final int MAX_LOGGED_ERRORS = 100;
+
+  private final ImportTarget target;
+  private final ImportFormat format;
+  private final Path file;
+  private final int batchSize;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  private record Row(long number, Object[] values) {}
+
+  private long inserted;
+  private long skipped;
+
+  @Builder
+  public BulkImportJob(
+      ImportTarget target,
+      ImportFormat format,
+      Path file,
+      int batchSize,
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate) {
+    this.target = target;
+    this.format = format;
+    this.file = file;
+    this.batchSize = batchSize;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      long size = Files.size(file);
+      ctx.log("Importing %d bytes of %s into %s".formatted(size, format, target));
+      ctx.progress(0, size);
+
+      Iterator<Map<String, String>> records = format.records(reader);
+      List<Row> batch = new ArrayList<>(batchSize);
+      long number = 0;
+      while (records.hasNext()) {
+        number++;
+        try {
+          batch.add(new Row(number, target.toRow(records.next())));
+        } catch (IllegalArgumentException e) {
+          skip(ctx, number, e.getMessage());
+        }
+        if (batch.size() >= batchSize) {
+          insert(ctx, batch);
+          ctx.checkpoint();
+          ctx.progress(in.count, size);
+        }
+      }
+      insert(ctx, batch);
+      ctx.progress(size, size);
+      ctx.log("Imported %d rows; skipped %d records".formatted(inserted, skipped));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Override
+  public void discard() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void insert(JobContext ctx, List<Row> batch) {
+    if (batch.isEmpty()) return;
+    String sql = target.insertSql();
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> jdbcTemplate.batchUpdate(sql, batch.stream().map(Row::values).toList()));
+      inserted += batch.size();
+    } catch (DataAccessException e) {
+      // some row violates a constraint, e.g. a duplicate key, and the whole batch was rolled
+      // back; insert the rows one at a time to import the rest and find the bad ones
+      for (Row row : batch) {
+        try {
+          jdbcTemplate.update(sql, row.values());
+          inserted++;
+        } catch (DataAccessException rowError) {
+          skip(ctx, row.number(), NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+        }
+      }
+    }
+    batch.clear();
+  }
+
+  private void skip(JobContext ctx, long number, String reason) {
+    skipped++;
+    if (skipped <= MAX_LOGGED_ERRORS) {
+      ctx.log("Skipped record %d: %s".formatted(number, reason));
+    } else if (skipped == MAX_LOGGED_ERRORS + 1) {
+      ctx.log("Further skipped records are not logged");
+    }
+  }
+
+  /** Counts the bytes read, so that progress can be reported as a fraction of the file. */
+  private static class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) count++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      if (n > 0) count += n;
+      return n;
+    }
+  }
+}
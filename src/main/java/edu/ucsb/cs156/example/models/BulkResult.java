@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents what happened to one item of a bulk request.
+ *
+ * Results are returned in the order of the request, so index is the item's position in it.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkResult {
+  public static final String CREATED = "created";
+  public static final String UPDATED = "updated";
+  public static final String DELETED = "deleted";
+  public static final String NOT_FOUND = "not found";
+  public static final String INVALID = "invalid";
+
+  private int index;
+  private Object id; // id of the row, or null if the item has none
+  private String status; // one of the constants above
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String message; // why an invalid item was rejected, null otherwise
+
+  public BulkResult(int index, Object id, String status) {
+    this(index, id, status, null);
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a row of the jobs listing.
+ *
+ * It is read with a projection query, so listing jobs never loads their logs.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private String status;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private Long createdById;
+  private long logLines; // number of lines in the job's log
+  private Long progressDone; // units of work done, if the job reports progress
+  private Long progressTotal; // units of work in total, if the job reports progress
+}
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents one page of a listing that is paged by keyset, i.e. by
+ * remembering the sort key of the last row rather than counting rows to skip.
+ *
+ * Pass next as the after parameter of the same endpoint to get the following page; next is null
+ * on the last page.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  private List<T> items;
+  private String next;
+
+  /**
+   * Builds a page from rows fetched with a limit of one more than the page size; the extra row,
+   * if present, only shows that there is a next page and is not returned.
+   *
+   * @param rows up to limit + 1 rows, in page order
+   * @param limit page size
+   * @param cursor function giving the sort key of a row
+   * @param <T> row type
+   * @return the page
+   */
+  public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, ?> cursor) {
+    if (rows.size() <= limit) {
+      return new KeysetPage<>(rows, null);
+    }
+    List<T> items = rows.subList(0, limit);
+    return new KeysetPage<>(items, String.valueOf(cursor.apply(items.get(limit - 1))));
+  }
+}
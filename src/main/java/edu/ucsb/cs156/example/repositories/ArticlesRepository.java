@@ -2,14 +2,73 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The ArticlesRepository is a repository for Articles entities.
  */
 
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {
+public interface ArticlesRepository
+    extends CrudRepository<Articles, Long>, BatchInsertRepository<Articles> {
 
+  /**
+   * This method streams every Articles entity, fetching rows from the database in batches. It
+   * must be called, and the stream consumed and closed, within a transaction.
+   * @return all Articles entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<Articles> streamAllBy();
+
+  /**
+   * This method returns a page of Articles entities in id order, for keyset pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return Articles entities ordered by id
+   */
+  List<Articles> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param id id of the Articles
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update articles a
+      set a.title = :#{#incoming.title},
+          a.url = :#{#incoming.url},
+          a.explanation = :#{#incoming.explanation},
+          a.email = :#{#incoming.email},
+          a.dateAdded = :#{#incoming.dateAdded}
+      where a.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") Articles incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the Articles
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from articles a where a.id = :id")
+  int removeById(@Param("id") long id);
 }
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+
+/**
+ * A repository fragment for inserting many new entities at once. Mix it into a repository
+ * interface alongside CrudRepository; the implementation is BatchInsertRepositoryImpl.
+ *
+ * @param <T> the type of entity
+ */
+public interface BatchInsertRepository<T> {
+  /**
+   * This method inserts new entities in JDBC batches of hibernate.jdbc.batch_size rows. Unlike
+   * saveAll, each entity is persisted without first checking whether it already exists, and the
+   * persistence context is flushed and cleared after each batch, so memory use does not grow with
+   * the number of entities. Any entity loaded earlier in the same transaction is detached.
+   *
+   * @param <S> the type of entity
+   * @param entities the new entities; their ids are assigned from the entity's sequence
+   * @return the entities, with their ids set
+   */
+  <S extends T> List<S> insertAll(Iterable<S> entities);
+}
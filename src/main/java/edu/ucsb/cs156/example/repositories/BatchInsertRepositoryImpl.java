@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The implementation of BatchInsertRepository, picked up by Spring Data for every repository
+ * that extends it.
+ *
+ * @param <T> the type of entity
+ */
+public class BatchInsertRepositoryImpl<T> implements BatchInsertRepository<T> {
+  @PersistenceContext private EntityManager entityManager;
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private int batchSize;
+
+  @Override
+  @Transactional
+  public <S extends T> List<S> insertAll(Iterable<S> entities) {
+    List<S> inserted = new ArrayList<>();
+    for (S entity : entities) {
+      entityManager.persist(entity);
+      inserted.add(entity);
+      if (inserted.size() % batchSize == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    return inserted;
+  }
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
+import java.util.Collection;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The CompressedJobLogsRepository is a repository for CompressedJobLog entities, keyed by job id.
+ */
+@Repository
+public interface CompressedJobLogsRepository extends CrudRepository<CompressedJobLog, Long> {
+  /**
+   * This method deletes the compressed logs of several jobs in one statement.
+   * @param jobIds ids of the jobs
+   * @return the number of logs deleted
+   */
+  @Modifying
+  @Query("delete from compressed_job_logs c where c.jobId in :jobIds")
+  int deleteAllByJobIdIn(@Param("jobIds") Collection<Long> jobIds);
+
+  /**
+   * This method deletes every compressed log in one statement.
+   * @return the number of logs deleted
+   */
+  @Modifying
+  @Query("delete from compressed_job_logs c")
+  int deleteAllInBulk();
+}
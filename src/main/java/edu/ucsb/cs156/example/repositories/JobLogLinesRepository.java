@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The JobLogLinesRepository is a repository for JobLogLine entities.
+ */
+@Repository
+public interface JobLogLinesRepository
+    extends CrudRepository<JobLogLine, Long>, BatchInsertRepository<JobLogLine> {
+  /**
+   * This method returns the log lines for a job, in the order they were logged.
+   * @param jobId id of the job
+   * @return the log lines for the job, ordered by sequence number
+   */
+  List<JobLogLine> findAllByJobIdOrderBySeqAsc(long jobId);
+
+  /**
+   * This method returns the log lines for a job that come after a given line.
+   * @param jobId id of the job
+   * @param seq sequence number of the last line already seen
+   * @return the log lines after seq, ordered by sequence number
+   */
+  List<JobLogLine> findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(long jobId, long seq);
+
+  /**
+   * This method returns the log lines for a job within a range of sequence numbers.
+   * @param jobId id of the job
+   * @param fromSeq first sequence number to return
+   * @param toSeq last sequence number to return
+   * @return the log lines from fromSeq to toSeq inclusive, ordered by sequence number
+   */
+  List<JobLogLine> findAllByJobIdAndSeqBetweenOrderBySeqAsc(long jobId, long fromSeq, long toSeq);
+
+  /**
+   * This method returns the most recently logged line for a job.
+   * @param jobId id of the job
+   * @return Optional of JobLogLine (empty if the job has no log lines)
+   */
+  Optional<JobLogLine> findFirstByJobIdOrderBySeqDesc(long jobId);
+
+  /**
+   * This method returns the ids of finished jobs, last updated before a given time, that still
+   * have log lines stored separately.
+   * @param statuses the statuses of finished jobs
+   * @param before only jobs last updated before this time
+   * @param limit maximum number of ids to return
+   * @return job ids, oldest first
+   */
+  @Query(
+      """
+      select distinct l.jobId from job_log_lines l, jobs j
+      where j.id = l.jobId and j.status in :statuses and j.updatedAt < :before
+      order by l.jobId
+      """)
+  List<Long> findJobIdsToCompact(
+      @Param("statuses") Collection<String> statuses,
+      @Param("before") ZonedDateTime before,
+      Limit limit);
+
+  /**
+   * This method deletes the log lines of several jobs in one statement.
+   * @param jobIds ids of the jobs
+   * @return the number of lines deleted
+   */
+  @Modifying
+  @Query("delete from job_log_lines l where l.jobId in :jobIds")
+  int deleteAllByJobIdIn(@Param("jobIds") Collection<Long> jobIds);
+
+  /**
+   * This method deletes every log line in one statement.
+   * @return the number of lines deleted
+   */
+  @Modifying
+  @Query("delete from job_log_lines l")
+  int deleteAllInBulk();
+}
@@ -1,8 +1,343 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  /**
+   * This method counts the jobs with a given status.
+   * @param status the status
+   * @return the number of jobs with that status
+   */
+  long countByStatus(String status);
+
+  /**
+   * This method returns summaries of jobs, newest first, without loading their logs. Any filter
+   * that is null is not applied. Finished jobs have their log's line count stored; only the
+   * lines of unfinished jobs are counted.
+   * @param after only return jobs with an id less than this (the keyset cursor)
+   * @param status only return jobs with this status
+   * @param createdAfter only return jobs created at or after this time
+   * @param createdBefore only return jobs created before this time
+   * @param limit maximum number of summaries to return
+   * @return job summaries ordered by id, descending
+   */
+  @Query(
+      """
+      select new edu.ucsb.cs156.example.models.JobSummary(
+          j.id, j.status, j.createdAt, j.updatedAt, u.id,
+          coalesce(j.logLines, (select count(l) from job_log_lines l where l.jobId = j.id)),
+          j.progressDone, j.progressTotal)
+      from jobs j left join j.createdBy u
+      where (:after is null or j.id < :after)
+        and (:status is null or j.status = :status)
+        and (:createdAfter is null or j.createdAt >= :createdAfter)
+        and (:createdBefore is null or j.createdAt < :createdBefore)
+      order by j.id desc
+      """)
+  List<JobSummary> findSummaries(
+      @Param("after") Long after,
+      @Param("status") String status,
+      @Param("createdAfter") ZonedDateTime createdAfter,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      Limit limit);
+
+  /**
+   * This method locks and returns the ids of jobs that a worker may claim: queued jobs of the
+   * durable queue, and claimed or running jobs whose lease has expired. Jobs with no job_type are
+   * waiting in the JobScheduler of the instance that launched them, and are not claimable. Rows
+   * already locked by another worker are skipped rather than waited for, so several workers can
+   * claim at once without contention. Must be called in a transaction; the locks are held until
+   * it commits.
+   * Jobs are returned highest priority first; among equal priorities, jobs of users with fewer
+   * jobs running come first, so that one user's backlog does not hold up everyone else's.
+   * @param now the current time
+   * @param maxAttempts jobs that have already been attempted this many times are not returned
+   * @param maxPerUser jobs of users who already have this many jobs claimed or running are not
+   *     returned; 0 for no limit
+   * @param limit maximum number of ids to return
+   * @return ids of claimable jobs, in the order they should run
+   */
+  @Query(
+      value =
+          """
+          SELECT id FROM jobs
+          WHERE attempts < :maxAttempts
+            AND job_type IS NOT NULL
+            AND (status = 'queued'
+                 OR (status IN ('claimed', 'running') AND lease_expires_at < :now))
+            AND (:maxPerUser = 0
+                 OR (SELECT COUNT(*) FROM jobs r
+                     WHERE r.created_by_id = jobs.created_by_id
+                       AND r.status IN ('claimed', 'running')
+                       AND r.lease_expires_at >= :now) < :maxPerUser)
+          ORDER BY priority DESC,
+                   (SELECT COUNT(*) FROM jobs r
+                    WHERE r.created_by_id = jobs.created_by_id
+                      AND r.status IN ('claimed', 'running')
+                      AND r.lease_expires_at >= :now),
+                   id
+          LIMIT :limit
+          FOR UPDATE SKIP LOCKED
+          """,
+      nativeQuery = true)
+  List<Long> lockClaimableIds(
+      @Param("now") ZonedDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("maxPerUser") int maxPerUser,
+      @Param("limit") int limit);
+
+  /**
+   * This method marks jobs as claimed by a worker.
+   * @param ids ids of the jobs, as returned by lockClaimableIds
+   * @param worker id of the claiming worker
+   * @param now the current time
+   * @param leaseExpiresAt when the claim lapses unless renewed
+   * @return the number of jobs claimed
+   */
+  @Modifying
+  @Query(
+      """
+      update jobs j
+      set j.status = 'claimed', j.claimedBy = :worker, j.heartbeatAt = :now,
+          j.leaseExpiresAt = :leaseExpiresAt, j.attempts = j.attempts + 1
+      where j.id in :ids
+      """)
+  int claim(
+      @Param("ids") List<Long> ids,
+      @Param("worker") String worker,
+      @Param("now") ZonedDateTime now,
+      @Param("leaseExpiresAt") ZonedDateTime leaseExpiresAt);
+
+  /**
+   * This method renews the lease on every unfinished job claimed by a worker.
+   * @param worker id of the worker
+   * @param now the current time
+   * @param leaseExpiresAt the new lease expiry
+   * @return the number of leases renewed
+   */
+  @Modifying
+  @Query(
+      """
+      update jobs j set j.heartbeatAt = :now, j.leaseExpiresAt = :leaseExpiresAt
+      where j.claimedBy = :worker and j.status in ('claimed', 'running')
+      """)
+  int renewLeases(
+      @Param("worker") String worker,
+      @Param("now") ZonedDateTime now,
+      @Param("leaseExpiresAt") ZonedDateTime leaseExpiresAt);
+
+  /**
+   * This method fails jobs whose lease has expired and that have no attempts left.
+   * @param now the current time
+   * @param maxAttempts the number of attempts a job is allowed
+   * @return the number of jobs failed
+   */
+  @Modifying
+  @Query(
+      """
+      update jobs j set j.status = 'error'
+      where j.status in ('claimed', 'running') and j.leaseExpiresAt < :now
+        and j.attempts >= :maxAttempts
+      """)
+  int failExhausted(@Param("now") ZonedDateTime now, @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * This method fails jobs run in-process (not through the durable queue) that were left
+   * unfinished by an instance that stopped. Such jobs live only in the memory of the instance
+   * that launched them, so nothing else will ever finish them.
+   * @param before only jobs created before this time, i.e. before this instance started
+   * @return the number of jobs failed
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update jobs j set j.status = 'error'
+      where j.jobType is null and j.status in ('queued', 'running') and j.createdAt < :before
+      """)
+  int failOrphaned(@Param("before") ZonedDateTime before);
+
+  /**
+   * This method marks a job as running when it starts. A job that was stopped, e.g. cancelled,
+   * while it waited to start is left as it is.
+   * @param id id of the job
+   * @return 1 if the job was marked running, 0 if it had been stopped
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update jobs j set j.status = 'running'
+      where j.id = :id and j.status in ('queued', 'claimed')
+      """)
+  int markRunning(@Param("id") long id);
+
+  /**
+   * This method stops a job that has not finished, e.g. to cancel it. A job that is running is
+   * stopped by the instance running it, which notices the new status (see findIdsWithStatus).
+   * @param id id of the job
+   * @param status the new status, e.g. cancelled
+   * @return 1 if the job was stopped, 0 if it had already finished
+   */
+  @Modifying
+  @Query(
+      """
+      update jobs j set j.status = :status
+      where j.id = :id and j.status in ('queued', 'claimed', 'running')
+      """)
+  int stopUnfinished(@Param("id") long id, @Param("status") String status);
+
+  /**
+   * This method returns which of the given jobs have the given status.
+   * @param ids ids of the jobs
+   * @param status the status
+   * @return ids of the jobs with that status
+   */
+  @Query("select j.id from jobs j where j.id in :ids and j.status = :status")
+  List<Long> findIdsWithStatus(
+      @Param("ids") Collection<Long> ids, @Param("status") String status);
+
+  /**
+   * This method returns the ids of finished jobs last updated before a given time.
+   * @param statuses the statuses of finished jobs
+   * @param before only jobs last updated before this time
+   * @param limit maximum number of ids to return
+   * @return job ids, oldest first
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses and j.updatedAt < :before
+      order by j.id
+      """)
+  List<Long> findIdsFinishedBefore(
+      @Param("statuses") Collection<String> statuses,
+      @Param("before") ZonedDateTime before,
+      Limit limit);
+
+  /**
+   * This method deletes several jobs in one statement. Their log lines must be deleted first.
+   * @param ids ids of the jobs
+   * @return the number of jobs deleted
+   */
+  @Modifying
+  @Query("delete from jobs j where j.id in :ids")
+  int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method sets the log column of a job without touching updatedAt, so that compacting a
+   * log does not make the job look recently updated.
+   * @param id id of the job
+   * @param log the log
+   * @param logLines the number of lines in the log
+   * @return the number of jobs updated
+   */
+  @Modifying
+  @Query("update jobs j set j.log = :log, j.logLines = :logLines where j.id = :id")
+  int updateLog(@Param("id") long id, @Param("log") String log, @Param("logLines") long logLines);
+
+  /**
+   * This method records the number of lines in a job's log, e.g. once the log is compressed,
+   * without touching updatedAt.
+   * @param id id of the job
+   * @param logLines the number of lines in the log
+   * @return the number of jobs updated
+   */
+  @Modifying
+  @Query("update jobs j set j.logLines = :logLines where j.id = :id")
+  int updateLogLines(@Param("id") long id, @Param("logLines") long logLines);
+
+  /**
+   * This method records the progress of a job without writing the rest of the row.
+   * @param id id of the job
+   * @param done units of work done
+   * @param total units of work in total
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query("update jobs j set j.progressDone = :done, j.progressTotal = :total where j.id = :id")
+  int updateProgress(@Param("id") long id, @Param("done") long done, @Param("total") long total);
+
+  /**
+   * This method finds the job a user launched with an idempotency key, if any. Keys are scoped
+   * to the user, so two users may use the same key.
+   * @param createdBy the user who launched the job
+   * @param idempotencyKey the key
+   * @return the job, or empty if no job of the user holds the key
+   */
+  Optional<Job> findByCreatedByAndIdempotencyKey(User createdBy, String idempotencyKey);
+
+  /**
+   * This method clears the idempotency key of a finished job, so that the key can be reused.
+   * @param id id of the job
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query("update jobs j set j.idempotencyKey = null where j.id = :id")
+  int releaseIdempotencyKey(@Param("id") long id);
+
+  /**
+   * This method returns the ids of jobs matching the given filters, oldest first. Any filter that
+   * is null is not applied.
+   * @param status only return jobs with this status
+   * @param createdBefore only return jobs created before this time
+   * @param limit maximum number of ids to return
+   * @return ids of the jobs
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where (:status is null or j.status = :status)
+        and (:createdBefore is null or j.createdAt < :createdBefore)
+      order by j.id
+      """)
+  List<Long> findIdsMatching(
+      @Param("status") String status,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      Limit limit);
+
+  /**
+   * This method returns the ids of jobs with one of the given statuses, oldest first, optionally
+   * only those created before a time.
+   * @param statuses only return jobs with one of these statuses
+   * @param createdBefore only return jobs created before this time, or null for any time
+   * @param limit maximum number of ids to return
+   * @return ids of the jobs
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses
+        and (:createdBefore is null or j.createdAt < :createdBefore)
+      order by j.id
+      """)
+  List<Long> findIdsWithStatusInMatching(
+      @Param("statuses") Collection<String> statuses,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      Limit limit);
+
+  /**
+   * This method deletes every job in one statement, without loading them. Their log lines must
+   * be deleted first.
+   * @return the number of jobs deleted
+   */
+  @Modifying
+  @Query("delete from jobs j")
+  int deleteAllInBulk();
+}
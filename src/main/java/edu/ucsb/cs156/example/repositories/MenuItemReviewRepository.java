@@ -2,14 +2,122 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The MenuItemReviewRepository is a repository for MenuItemReview entities.
  */
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-  
-}
\ No newline at end of file
+public interface MenuItemReviewRepository
+    extends CrudRepository<MenuItemReview, Long>, BatchInsertRepository<MenuItemReview> {
+
+  /**
+   * This method streams every MenuItemReview entity, fetching rows from the database in batches. It
+   * must be called, and the stream consumed and closed, within a transaction.
+   * @return all MenuItemReview entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<MenuItemReview> streamAllBy();
+
+  /**
+   * This method returns a page of MenuItemReview entities in id order, for keyset pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return MenuItemReview entities ordered by id
+   */
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method returns the version of a row, without reading the rest of it. Read in the
+   * transaction that updated the row, it is the version that update wrote.
+   * @param id id of the MenuItemReview
+   * @return the version, empty if there is no row with that id
+   */
+  @Query("select r.version from menuitemreview r where r.id = :id")
+  Optional<Long> findVersionById(@Param("id") long id);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first, whatever its
+   * version, and increments the version.
+   * @param id id of the MenuItemReview
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update menuitemreview r
+      set r.itemId = :#{#incoming.itemId},
+          r.reviewerEmail = :#{#incoming.reviewerEmail},
+          r.stars = :#{#incoming.stars},
+          r.dateReviewed = :#{#incoming.dateReviewed},
+          r.comments = :#{#incoming.comments},
+          r.version = r.version + 1
+      where r.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") MenuItemReview incoming);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first, if it is still at
+   * the given version, and increments the version.
+   * @param id id of the MenuItemReview
+   * @param version the version the row must be at
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id and version
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update menuitemreview r
+      set r.itemId = :#{#incoming.itemId},
+          r.reviewerEmail = :#{#incoming.reviewerEmail},
+          r.stars = :#{#incoming.stars},
+          r.dateReviewed = :#{#incoming.dateReviewed},
+          r.comments = :#{#incoming.comments},
+          r.version = r.version + 1
+      where r.id = :id and r.version = :version
+      """)
+  int updateByIdAndVersion(
+      @Param("id") long id,
+      @Param("version") long version,
+      @Param("incoming") MenuItemReview incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the MenuItemReview
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from menuitemreview r where r.id = :id")
+  int removeById(@Param("id") long id);
+
+  /**
+   * This method deletes a row in one statement if it is still at the given version.
+   * @param id id of the MenuItemReview
+   * @param version the version the row must be at
+   * @return the number of rows deleted, 0 if there is none with that id and version
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from menuitemreview r where r.id = :id and r.version = :version")
+  int removeByIdAndVersion(@Param("id") long id, @Param("version") long version);
+}
@@ -2,13 +2,76 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The RecommendationRequestRepository is a repository for RecommendationRequest entities
  */
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-}
\ No newline at end of file
+public interface RecommendationRequestRepository
+    extends CrudRepository<RecommendationRequest, Long>,
+        BatchInsertRepository<RecommendationRequest> {
+
+  /**
+   * This method streams every RecommendationRequest entity, fetching rows from the database in
+   * batches. It must be called, and the stream consumed and closed, within a transaction.
+   * @return all RecommendationRequest entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<RecommendationRequest> streamAllBy();
+
+  /**
+   * This method returns a page of RecommendationRequest entities in id order, for keyset
+   * pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return RecommendationRequest entities ordered by id
+   */
+  List<RecommendationRequest> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param id id of the RecommendationRequest
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update recommendationrequests r
+      set r.requesterEmail = :#{#incoming.requesterEmail},
+          r.professorEmail = :#{#incoming.professorEmail},
+          r.explanation = :#{#incoming.explanation},
+          r.dateRequested = :#{#incoming.dateRequested},
+          r.dateNeeded = :#{#incoming.dateNeeded},
+          r.done = :#{#incoming.done}
+      where r.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") RecommendationRequest incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the RecommendationRequest
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from recommendationrequests r where r.id = :id")
+  int removeById(@Param("id") long id);
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.RecurringJob;
+import java.time.ZonedDateTime;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The RecurringJobsRepository is a repository for RecurringJob entities, keyed by schedule name.
+ */
+@Repository
+public interface RecurringJobsRepository extends CrudRepository<RecurringJob, String> {
+  /**
+   * This method claims a run of a recurring job, in one statement so that when several instances
+   * fire the same schedule only one of them succeeds. The claim fails if another instance has
+   * already claimed a run scheduled since firedBefore, or if the last run's job is still queued or
+   * running; a job that has claimed to be running since before staleBefore is assumed to have
+   * died with its instance and does not block the schedule.
+   * @param name name of the recurring job
+   * @param firedAt scheduled time of this run
+   * @param firedBefore a run scheduled after this time is taken to be this same run
+   * @param staleBefore unfinished jobs created before this time are ignored
+   * @return 1 if this run was claimed, 0 if it should be skipped
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      """
+      update recurring_jobs r set r.lastFiredAt = :firedAt
+      where r.name = :name
+        and (r.lastFiredAt is null or r.lastFiredAt <= :firedBefore)
+        and not exists (
+          select j.id from jobs j
+          where j.id = r.lastJobId
+            and j.status in ('queued', 'claimed', 'running')
+            and j.createdAt >= :staleBefore)
+      """)
+  int claimRun(
+      @Param("name") String name,
+      @Param("firedAt") ZonedDateTime firedAt,
+      @Param("firedBefore") ZonedDateTime firedBefore,
+      @Param("staleBefore") ZonedDateTime staleBefore);
+
+  /**
+   * This method records the job started for a claimed run.
+   * @param name name of the recurring job
+   * @param jobId id of the job
+   * @return the number of rows updated
+   */
+  @Modifying
+  @Transactional
+  @Query("update recurring_jobs r set r.lastJobId = :jobId where r.name = :name")
+  int recordJob(@Param("name") String name, @Param("jobId") long jobId);
+}
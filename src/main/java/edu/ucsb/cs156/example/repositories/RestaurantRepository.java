@@ -2,12 +2,69 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository
+    extends CrudRepository<Restaurant, Long>, BatchInsertRepository<Restaurant> {
+
+  /**
+   * This method streams every Restaurant entity, fetching rows from the database in batches. It
+   * must be called, and the stream consumed and closed, within a transaction.
+   * @return all Restaurant entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<Restaurant> streamAllBy();
+
+  /**
+   * This method returns a page of Restaurant entities in id order, for keyset pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return Restaurant entities ordered by id
+   */
+  List<Restaurant> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param id id of the Restaurant
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update restaurants r
+      set r.name = :#{#incoming.name},
+          r.description = :#{#incoming.description}
+      where r.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") Restaurant incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the Restaurant
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from restaurants r where r.id = :id")
+  int removeById(@Param("id") long id);
 }
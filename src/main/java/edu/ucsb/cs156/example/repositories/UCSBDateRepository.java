@@ -2,19 +2,77 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
  */
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository
+    extends CrudRepository<UCSBDate, Long>, BatchInsertRepository<UCSBDate> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring 2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  /**
+   * This method streams every UCSBDate entity, fetching rows from the database in batches. It
+   * must be called, and the stream consumed and closed, within a transaction.
+   * @return all UCSBDate entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<UCSBDate> streamAllBy();
+
+  /**
+   * This method returns a page of UCSBDate entities in id order, for keyset pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return UCSBDate entities ordered by id
+   */
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param id id of the UCSBDate
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update ucsbdates d
+      set d.quarterYYYYQ = :#{#incoming.quarterYYYYQ},
+          d.name = :#{#incoming.name},
+          d.localDateTime = :#{#incoming.localDateTime}
+      where d.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") UCSBDate incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the UCSBDate
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdates d where d.id = :id")
+  int removeById(@Param("id") long id);
+}
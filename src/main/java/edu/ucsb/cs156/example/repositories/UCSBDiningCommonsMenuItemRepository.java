@@ -1,12 +1,70 @@
 package edu.ucsb.cs156.example.repositories;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository
-    extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
-    
+    extends CrudRepository<UCSBDiningCommonsMenuItem, Long>,
+        BatchInsertRepository<UCSBDiningCommonsMenuItem> {
+
+  /**
+   * This method streams every UCSBDiningCommonsMenuItem entity, fetching rows from the database in
+   * batches. It must be called, and the stream consumed and closed, within a transaction.
+   * @return all UCSBDiningCommonsMenuItem entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<UCSBDiningCommonsMenuItem> streamAllBy();
+
+  /**
+   * This method returns a page of UCSBDiningCommonsMenuItem entities in id order, for keyset
+   * pagination.
+   * @param after only return entities with a id greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return UCSBDiningCommonsMenuItem entities ordered by id
+   */
+  List<UCSBDiningCommonsMenuItem> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param id id of the UCSBDiningCommonsMenuItem
+   * @param incoming the new values; its id is ignored
+   * @return the number of rows updated, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update UCSBDiningCommonsMenuItem m
+      set m.diningCommonsCode = :#{#incoming.diningCommonsCode},
+          m.name = :#{#incoming.name},
+          m.station = :#{#incoming.station}
+      where m.id = :id
+      """)
+  int updateById(@Param("id") long id, @Param("incoming") UCSBDiningCommonsMenuItem incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param id id of the UCSBDiningCommonsMenuItem
+   * @return the number of rows deleted, 0 if there is none with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from UCSBDiningCommonsMenuItem m where m.id = :id")
+  int removeById(@Param("id") long id);
 }
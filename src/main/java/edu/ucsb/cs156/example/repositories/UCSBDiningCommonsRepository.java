@@ -3,13 +3,74 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository
+    extends CrudRepository<UCSBDiningCommons, String>,
+        BatchInsertRepository<UCSBDiningCommons> {
+
+  /**
+   * This method streams every UCSBDiningCommons entity, fetching rows from the database in
+   * batches. It must be called, and the stream consumed and closed, within a transaction.
+   * @return all UCSBDiningCommons entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<UCSBDiningCommons> streamAllBy();
+
+  /**
+   * This method returns a page of UCSBDiningCommons entities in code order, for keyset pagination.
+   * @param after only return entities with a code greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return UCSBDiningCommons entities ordered by code
+   */
+  List<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param code code of the UCSBDiningCommons
+   * @param incoming the new values; its code is ignored
+   * @return the number of rows updated, 0 if there is none with that code
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update ucsbdiningcommons c
+      set c.name = :#{#incoming.name},
+          c.hasSackMeal = :#{#incoming.hasSackMeal},
+          c.hasTakeOutMeal = :#{#incoming.hasTakeOutMeal},
+          c.hasDiningCam = :#{#incoming.hasDiningCam},
+          c.latitude = :#{#incoming.latitude},
+          c.longitude = :#{#incoming.longitude}
+      where c.code = :code
+      """)
+  int updateById(@Param("code") String code, @Param("incoming") UCSBDiningCommons incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param code code of the UCSBDiningCommons
+   * @return the number of rows deleted, 0 if there is none with that code
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdiningcommons c where c.code = :code")
+  int removeById(@Param("code") String code);
+}
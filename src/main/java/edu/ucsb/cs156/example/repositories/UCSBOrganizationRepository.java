@@ -1,13 +1,72 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /*
 Repository for UCSB Organization entities.
 */
 
 @Repository
-public interface UCSBOrganizationRepository extends JpaRepository<UCSBOrganization, String> {
+public interface UCSBOrganizationRepository
+    extends JpaRepository<UCSBOrganization, String>, BatchInsertRepository<UCSBOrganization> {
+
+  /**
+   * This method streams every UCSBOrganization entity, fetching rows from the database in
+   * batches. It must be called, and the stream consumed and closed, within a transaction.
+   * @return all UCSBOrganization entities
+   */
+  @QueryHints({
+    @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<UCSBOrganization> streamAllBy();
+
+  /**
+   * This method returns a page of UCSBOrganization entities in orgCode order, for keyset
+   * pagination.
+   * @param after only return entities with a orgCode greater than this (the keyset cursor)
+   * @param limit maximum number of entities to return
+   * @return UCSBOrganization entities ordered by orgCode
+   */
+  List<UCSBOrganization> findByOrgCodeGreaterThanOrderByOrgCodeAsc(String after, Limit limit);
+
+  /**
+   * This method overwrites a row in one statement, without reading it first.
+   * @param orgCode orgCode of the UCSBOrganization
+   * @param incoming the new values; its orgCode is ignored
+   * @return the number of rows updated, 0 if there is none with that orgCode
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+      update UCSBOrganization o
+      set o.orgTranslationShort = :#{#incoming.orgTranslationShort},
+          o.orgTranslation = :#{#incoming.orgTranslation},
+          o.inactive = :#{#incoming.inactive}
+      where o.orgCode = :orgCode
+      """)
+  int updateById(@Param("orgCode") String orgCode, @Param("incoming") UCSBOrganization incoming);
+
+  /**
+   * This method deletes a row in one statement, without reading it first.
+   * @param orgCode orgCode of the UCSBOrganization
+   * @return the number of rows deleted, 0 if there is none with that orgCode
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from UCSBOrganization o where o.orgCode = :orgCode")
+  int removeById(@Param("orgCode") String orgCode);
 }
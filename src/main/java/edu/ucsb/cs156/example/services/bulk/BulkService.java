@@ -0,0 +1,229 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import edu.ucsb.cs156.example.errors.BulkConflictException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.repositories.BatchInsertRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates, updates and deletes many rows of a table in one request. Each request runs in a
+ * single transaction: existing rows are read with one query, and the inserts, updates and
+ * deletes are sent to the database in JDBC batches when the transaction is flushed.
+ *
+ * <p>Every item is checked before any is written, so a request with an invalid item changes
+ * nothing and gets a 400 listing each invalid item. A request whose items break a constraint of
+ * the table is rolled back and gets a 409.
+ */
+@Service
+public class BulkService {
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${app.bulk.max-items:1000}")
+  private int maxItems;
+
+  /**
+   * This method inserts new rows whose ids are generated by the database.
+   *
+   * @param <E> the type of entity
+   * @param repository the repository of the table
+   * @param items the new rows; any id they hold must already be cleared
+   * @param idOf function giving the id of a row
+   * @return a result per item, each created; or 400 if there are more than max-items items or
+   *     any item is invalid
+   */
+  public <E> ResponseEntity<List<BulkResult>> insert(
+      BatchInsertRepository<E> repository, List<E> items, Function<E, ?> idOf) {
+    if (items.size() > maxItems) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<BulkResult> invalid = invalid(items, idOf, false);
+    if (!invalid.isEmpty()) {
+      return ResponseEntity.badRequest().body(invalid);
+    }
+    List<E> inserted = new ArrayList<>(items.size());
+    inTransaction(status -> inserted.addAll(repository.insertAll(items)));
+    List<BulkResult> results = new ArrayList<>(inserted.size());
+    for (int i = 0; i < inserted.size(); i++) {
+      results.add(new BulkResult(i, idOf.apply(inserted.get(i)), BulkResult.CREATED));
+    }
+    return ResponseEntity.ok(results);
+  }
+
+  /**
+   * This method saves rows whose ids are chosen by the caller, as /post does: rows that already
+   * exist are overwritten and the rest are inserted.
+   *
+   * @param <E> the type of entity
+   * @param <ID> the type of id
+   * @param <R> the type of repository
+   * @param repository the repository of the table
+   * @param items the rows
+   * @param idOf function giving the id of a row
+   * @return a result per item: created, updated, or invalid if it has no id; or 400 if there are
+   *     more than max-items items or any item is null
+   */
+  public <E, ID, R extends CrudRepository<E, ID> & BatchInsertRepository<E>>
+      ResponseEntity<List<BulkResult>> save(R repository, List<E> items, Function<E, ID> idOf) {
+    if (items.size() > maxItems) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<BulkResult> invalid = invalid(items, idOf, false);
+    if (!invalid.isEmpty()) {
+      return ResponseEntity.badRequest().body(invalid);
+    }
+    List<BulkResult> results = new ArrayList<>(items.size());
+    inTransaction(
+        status -> {
+          Map<ID, E> existing = findAll(repository, items.stream().map(idOf).toList(), idOf);
+          Map<ID, E> created = new HashMap<>();
+          for (int i = 0; i < items.size(); i++) {
+            E item = items.get(i);
+            ID id = idOf.apply(item);
+            if (id == null) {
+              results.add(new BulkResult(i, null, BulkResult.INVALID));
+            } else if (existing.containsKey(id)) {
+              overwrite(existing.get(id), item);
+              results.add(new BulkResult(i, id, BulkResult.UPDATED));
+            } else {
+              // the same id twice in one request: the later item wins
+              created.put(id, item);
+              results.add(new BulkResult(i, id, BulkResult.CREATED));
+            }
+          }
+          repository.insertAll(created.values());
+        });
+    return ResponseEntity.ok(results);
+  }
+
+  /**
+   * This method overwrites existing rows with the given ones, as PUT does for a single row.
+   *
+   * @param <E> the type of entity
+   * @param <ID> the type of id
+   * @param repository the repository of the table
+   * @param items the rows, each with the id of the row it replaces
+   * @param idOf function giving the id of a row
+   * @return a result per item, updated or not found; or 400 if there are more than max-items
+   *     items or any item is invalid
+   */
+  public <E, ID> ResponseEntity<List<BulkResult>> update(
+      CrudRepository<E, ID> repository, List<E> items, Function<E, ID> idOf) {
+    if (items.size() > maxItems) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<BulkResult> invalid = invalid(items, idOf, true);
+    if (!invalid.isEmpty()) {
+      return ResponseEntity.badRequest().body(invalid);
+    }
+    List<BulkResult> results = new ArrayList<>(items.size());
+    inTransaction(
+        status -> {
+          Map<ID, E> existing = findAll(repository, items.stream().map(idOf).toList(), idOf);
+          for (int i = 0; i < items.size(); i++) {
+            E item = items.get(i);
+            ID id = idOf.apply(item);
+            if (existing.containsKey(id)) {
+              overwrite(existing.get(id), item);
+              results.add(new BulkResult(i, id, BulkResult.UPDATED));
+            } else {
+              results.add(new BulkResult(i, id, BulkResult.NOT_FOUND));
+            }
+          }
+        });
+    return ResponseEntity.ok(results);
+  }
+
+  /**
+   * This method deletes rows by id.
+   *
+   * @param <E> the type of entity
+   * @param <ID> the type of id
+   * @param repository the repository of the table
+   * @param ids the ids of the rows to delete
+   * @param idOf function giving the id of a row
+   * @return a result per id, deleted or not found, or 400 if there are more than max-items ids
+   */
+  public <E, ID> ResponseEntity<List<BulkResult>> delete(
+      CrudRepository<E, ID> repository, List<ID> ids, Function<E, ID> idOf) {
+    if (ids.size() > maxItems) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<BulkResult> results = new ArrayList<>(ids.size());
+    inTransaction(
+        status -> {
+          Map<ID, E> existing = findAll(repository, ids, idOf);
+          repository.deleteAll(existing.values());
+          for (int i = 0; i < ids.size(); i++) {
+            ID id = ids.get(i);
+            results.add(
+                new BulkResult(
+                    i, id, existing.containsKey(id) ? BulkResult.DELETED : BulkResult.NOT_FOUND));
+          }
+        });
+    return ResponseEntity.ok(results);
+  }
+
+  /**
+   * Checks every item before any is written. A request body binds to a list without its items
+   * being validated, so a null item would otherwise fail half way through the transaction.
+   *
+   * @param needsId whether each item must carry the id of the row it replaces
+   * @return a result per invalid item, empty if every item is valid
+   */
+  private <E> List<BulkResult> invalid(List<E> items, Function<E, ?> idOf, boolean needsId) {
+    List<BulkResult> invalid = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      E item = items.get(i);
+      if (item == null) {
+        invalid.add(new BulkResult(i, null, BulkResult.INVALID, "item is null"));
+      } else if (needsId && idOf.apply(item) == null) {
+        invalid.add(new BulkResult(i, null, BulkResult.INVALID, "item has no id"));
+      }
+    }
+    return invalid;
+  }
+
+  /** Runs the writes in one transaction, turning a constraint they break into a 409. */
+  private void inTransaction(Consumer<TransactionStatus> action) {
+    try {
+      transactionTemplate.executeWithoutResult(action);
+    } catch (DataIntegrityViolationException e) {
+      throw new BulkConflictException(e);
+    }
+  }
+
+  /**
+   * Copies an item onto the row it replaces, which is already in the persistence context, so the
+   * update is written when the transaction is flushed without another select. The version is not
+   * copied: items carry none, so a bulk update replaces whatever version is stored, as PUT does
+   * without If-Match, and Hibernate increments it.
+   */
+  private <E> void overwrite(E row, E item) {
+    BeanUtils.copyProperties(item, row, "version");
+  }
+
+  private <E, ID> Map<ID, E> findAll(
+      CrudRepository<E, ID> repository, List<ID> ids, Function<E, ID> idOf) {
+    Map<ID, E> found = new HashMap<>();
+    List<ID> lookup = ids.stream().filter(Objects::nonNull).distinct().toList();
+    if (!lookup.isEmpty()) {
+      repository.findAllById(lookup).forEach(row -> found.put(idOf.apply(row), row));
+    }
+    return found;
+  }
+}
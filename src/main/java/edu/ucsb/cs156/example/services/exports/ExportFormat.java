@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import java.util.Arrays;
+import java.util.Optional;
+import org.springframework.http.MediaType;
+
+/** A file format that rows can be exported in. */
+public enum ExportFormat {
+  /** a JSON array, the same as /all returns, but written a row at a time */
+  JSON("json", MediaType.APPLICATION_JSON),
+
+  /** one JSON object per line, as the entity is serialized by /all; can be imported again */
+  NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson")),
+
+  /** comma-separated values with a header row of field names; can be imported again */
+  CSV("csv", MediaType.parseMediaType("text/csv;charset=UTF-8"));
+
+  private final String extension;
+  private final MediaType mediaType;
+
+  ExportFormat(String extension, MediaType mediaType) {
+    this.extension = extension;
+    this.mediaType = mediaType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Finds a format by name, ignoring case.
+   *
+   * @param name the name, e.g. ndjson
+   * @return the format, or empty if there is no format with that name
+   */
+  public static Optional<ExportFormat> fromName(String name) {
+    return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(name)).findFirst();
+  }
+}
@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streams every row of a table to an HTTP response as JSON, NDJSON or CSV. Rows are read from a
+ * repository Stream with a JDBC fetch size and written as they arrive, each detached from the
+ * persistence context once written, so heap use does not grow with the size of the table.
+ */
+@Service
+public class ExportService {
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * This method returns a response that streams rows in the given format.
+   *
+   * @param <T> the type of entity
+   * @param name the name of the export, used for the file name, e.g. articles
+   * @param format json, ndjson or csv, ignoring case
+   * @param rows opens a stream of the rows; called in a read-only transaction, as the stream
+   *     reads from an open result set
+   * @return the response, or 400 if the format is unknown
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(
+      String name, String format, Supplier<Stream<T>> rows) {
+    Optional<ExportFormat> exportFormat = ExportFormat.fromName(format);
+    if (exportFormat.isEmpty()) {
+      return ResponseEntity.badRequest().build();
+    }
+    ExportFormat chosen = exportFormat.get();
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+
+    StreamingResponseBody body =
+        out ->
+            readOnly.executeWithoutResult(
+                status -> {
+                  try (Stream<T> stream = rows.get()) {
+                    write(chosen, stream.iterator(), out);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return ResponseEntity.ok()
+        .contentType(chosen.getMediaType())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename(name + "." + chosen.getExtension())
+                .build()
+                .toString())
+        .body(body);
+  }
+
+  private <T> void write(ExportFormat format, Iterator<T> rows, OutputStream out)
+      throws IOException {
+    if (format == ExportFormat.CSV) {
+      writeCsv(rows, out);
+      return;
+    }
+    // one generator for the whole response, so each row is serialized straight into the
+    // generator's buffer; the servlet output stream is closed by the container, not here
+    try (JsonGenerator generator = mapper.createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      if (format == ExportFormat.JSON) {
+        generator.writeStartArray();
+      }
+      while (rows.hasNext()) {
+        T row = rows.next();
+        generator.writeObject(row);
+        if (format == ExportFormat.NDJSON) {
+          generator.writeRaw('\n');
+        }
+        entityManager.detach(row);
+      }
+      if (format == ExportFormat.JSON) {
+        generator.writeEndArray();
+      }
+    }
+  }
+
+  private <T> void writeCsv(Iterator<T> rows, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    List<String> header = null;
+    while (rows.hasNext()) {
+      T row = rows.next();
+      JsonNode node = mapper.valueToTree(row);
+      if (header == null) {
+        header = new ArrayList<>();
+        node.fieldNames().forEachRemaining(header::add);
+        writeCsvRow(writer, header);
+      }
+      List<String> fields = new ArrayList<>(header.size());
+      for (String field : header) {
+        JsonNode value = node.get(field);
+        fields.add(
+            value == null || value.isNull()
+                ? ""
+                : value.isValueNode() ? value.asText() : value.toString());
+      }
+      writeCsvRow(writer, fields);
+      entityManager.detach(row);
+    }
+    writer.flush();
+  }
+
+  private void writeCsvRow(Writer writer, List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) writer.write(',');
+      String field = fields.get(i);
+      if (field.contains(",") || field.contains("\"") || field.contains("\n")
+          || field.contains("\r")) {
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+      } else {
+        writer.write(field);
+      }
+    }
+    writer.write('\n');
+  }
+}
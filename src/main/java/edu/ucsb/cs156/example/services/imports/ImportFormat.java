@@ -0,0 +1,214 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/** A file format that records can be imported from. Files are read a record at a time. */
+public enum ImportFormat {
+  /** comma-separated values with a header row naming the fields, as in RFC 4180 */
+  CSV {
+    @Override
+    public Iterator<Map<String, String>> records(Reader in) {
+      return new CsvRecords(in);
+    }
+  },
+
+  /** one JSON object per line; blank lines are ignored */
+  NDJSON {
+    @Override
+    public Iterator<Map<String, String>> records(Reader in) {
+      return new NdjsonRecords(in);
+    }
+  };
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /**
+   * Reads records from a file, one at a time.
+   *
+   * @param in the file
+   * @return the records, each a map from field name to value
+   */
+  public abstract Iterator<Map<String, String>> records(Reader in);
+
+  /**
+   * Picks the format of a file from its name.
+   *
+   * @param filename the name of the file
+   * @return NDJSON for .ndjson and .jsonl files, otherwise CSV
+   */
+  public static ImportFormat fromFilename(String filename) {
+    String name = filename != null ? filename.toLowerCase() : "";
+    return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+  }
+
+  /**
+   * Reads NDJSON records a line at a time, so that a line that is not valid JSON is rejected on
+   * its own and reading continues with the next line.
+   */
+  static class NdjsonRecords implements Iterator<Map<String, String>> {
+    private final BufferedReader in;
+    private long lineNumber;
+    private String peeked;
+
+    NdjsonRecords(Reader in) {
+      this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return peek() != null;
+    }
+
+    @Override
+    public Map<String, String> next() {
+      String line = peek();
+      if (line == null) {
+        throw new NoSuchElementException();
+      }
+      peeked = null;
+      JsonNode node;
+      try {
+        node = MAPPER.readTree(line);
+      } catch (JsonProcessingException e) {
+        throw new IllegalArgumentException(
+            "Line %d is not valid JSON: %s".formatted(lineNumber, e.getOriginalMessage()));
+      }
+      if (!node.isObject()) {
+        throw new IllegalArgumentException("Line %d is not a JSON object".formatted(lineNumber));
+      }
+      Map<String, String> record = new LinkedHashMap<>();
+      node.fields()
+          .forEachRemaining(
+              field ->
+                  record.put(
+                      field.getKey(),
+                      field.getValue().isNull() ? null : field.getValue().asText()));
+      return record;
+    }
+
+    private String peek() {
+      try {
+        while (peeked == null) {
+          String line = in.readLine();
+          if (line == null) {
+            return null;
+          }
+          lineNumber++;
+          if (!line.isBlank()) {
+            peeked = line;
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return peeked;
+    }
+  }
+
+  /** Reads CSV records incrementally; quoted fields may contain commas, quotes and newlines. */
+  static class CsvRecords implements Iterator<Map<String, String>> {
+    private final Reader in;
+    private final String[] header;
+    private int peeked = -2; // -2 when no character has been read ahead
+
+    CsvRecords(Reader in) {
+      this.in = in;
+      String[] fields = readRow();
+      if (fields == null) {
+        throw new IllegalArgumentException("CSV file is empty; it needs a header row");
+      }
+      this.header = fields;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return peek() != -1;
+    }
+
+    @Override
+    public Map<String, String> next() {
+      String[] fields = readRow();
+      if (fields == null) {
+        throw new NoSuchElementException();
+      }
+      if (fields.length != header.length) {
+        throw new IllegalArgumentException(
+            "Row has %d fields but the header has %d".formatted(fields.length, header.length));
+      }
+      Map<String, String> record = new LinkedHashMap<>();
+      for (int i = 0; i < header.length; i++) {
+        record.put(header[i], fields[i]);
+      }
+      return record;
+    }
+
+    private String[] readRow() {
+      if (peek() == -1) {
+        return null;
+      }
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      while (true) {
+        int c = read();
+        if (quoted) {
+          if (c == -1) {
+            throw new IllegalArgumentException("CSV file ends inside a quoted field");
+          } else if (c == '"' && peek() == '"') {
+            read();
+            field.append('"');
+          } else if (c == '"') {
+            quoted = false;
+          } else {
+            field.append((char) c);
+          }
+        } else if (c == '"' && field.isEmpty()) {
+          quoted = true;
+        } else if (c == ',') {
+          fields.add(field.toString());
+          field.setLength(0);
+        } else if (c == '\r' && peek() == '\n') {
+          // \r\n ends the row at the \n
+        } else if (c == '\n' || c == -1) {
+          fields.add(field.toString());
+          return fields.toArray(String[]::new);
+        } else {
+          field.append((char) c);
+        }
+      }
+    }
+
+    private int peek() {
+      if (peeked == -2) {
+        peeked = readChar();
+      }
+      return peeked;
+    }
+
+    private int read() {
+      int c = peek();
+      peeked = -2;
+      return c;
+    }
+
+    private int readChar() {
+      try {
+        return in.read();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A table that reference data can be bulk imported into. Records are read with the same field
+ * names as the entity's JSON, so the output of an /all endpoint can be imported as it is.
+ */
+public enum ImportTarget {
+  UCSB_DATES("ucsbdates", "ucsbdates", "quarteryyyyq", "name", "local_date_time") {
+    @Override
+    public Object[] toRow(Map<String, String> record) {
+      String quarter = required(record, "quarterYYYYQ");
+      if (!quarter.matches("\\d{5}")) {
+        throw new IllegalArgumentException("quarterYYYYQ must be 5 digits, e.g. 20241");
+      }
+      String localDateTime = required(record, "localDateTime");
+      try {
+        return new Object[] {
+          quarter, required(record, "name"), Timestamp.valueOf(LocalDateTime.parse(localDateTime))
+        };
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException(
+            "localDateTime must be an ISO date and time, e.g. 2024-01-08T00:00:00");
+      }
+    }
+  },
+
+  UCSB_DINING_COMMONS_MENU_ITEMS(
+      "ucsbdiningcommonsmenuitem",
+      "ucsbdiningcommonsmenuitems",
+      "dining_commons_code",
+      "name",
+      "station") {
+    @Override
+    public Object[] toRow(Map<String, String> record) {
+      return new Object[] {
+        required(record, "diningCommonsCode"), required(record, "name"), required(record, "station")
+      };
+    }
+  },
+
+  UCSB_ORGANIZATIONS(
+      "ucsborganizations",
+      "ucsborganization",
+      "org_code",
+      "org_translation_short",
+      "org_translation",
+      "inactive") {
+    @Override
+    public Object[] toRow(Map<String, String> record) {
+      String inactive = record.get("inactive");
+      if (inactive != null && !inactive.isBlank() && !inactive.matches("(?i)true|false")) {
+        throw new IllegalArgumentException("inactive must be true or false");
+      }
+      return new Object[] {
+        required(record, "orgCode"),
+        record.get("orgTranslationShort"),
+        record.get("orgTranslation"),
+        Boolean.parseBoolean(inactive)
+      };
+    }
+  };
+
+  private final String path;
+  private final String table;
+  private final String[] columns;
+
+  ImportTarget(String path, String table, String... columns) {
+    this.path = path;
+    this.table = table;
+    this.columns = columns;
+  }
+
+  /**
+   * Converts a record to the values of one row, in the order of insertSql's parameters.
+   *
+   * @param record the record, field name to value
+   * @return the row
+   * @throws IllegalArgumentException if the record is not valid
+   */
+  public abstract Object[] toRow(Map<String, String> record);
+
+  /**
+   * This method returns the statement that inserts one row into the target's table.
+   *
+   * @return the insert statement, with a parameter per column
+   */
+  public String insertSql() {
+    return "INSERT INTO %s (%s) VALUES (%s)"
+        .formatted(
+            table,
+            String.join(", ", columns),
+            String.join(", ", Collections.nCopies(columns.length, "?")));
+  }
+
+  /**
+   * Finds a target by the path of its API, e.g. ucsbdates for /api/ucsbdates.
+   *
+   * @param path the path
+   * @return the target, or empty if there is no target with that path
+   */
+  public static Optional<ImportTarget> fromPath(String path) {
+    return Arrays.stream(values()).filter(target -> target.path.equals(path)).findFirst();
+  }
+
+  private static String required(Map<String, String> record, String field) {
+    String value = record.get(field);
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException(field + " is required");
+    }
+    return value;
+  }
+}
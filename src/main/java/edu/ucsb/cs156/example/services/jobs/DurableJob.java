@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * A JobContextConsumer whose state can be written to and read back from JSON, so that it can be
+ * queued in the jobs table and run by whichever instance claims it. Implementations need a
+ * no-argument constructor and a getter and setter for each field.
+ */
+public interface DurableJob extends JobContextConsumer {}
@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * Thrown by {@link JobContext#checkpoint()} when the job has been cancelled or has run past its
+ * timeout, so that a job unwinds at a point where it is safe to stop.
+ */
+public class JobCancelledException extends RuntimeException {
+  public JobCancelledException(String reason) {
+    super("Job stopped: %s".formatted(reason));
+  }
+}
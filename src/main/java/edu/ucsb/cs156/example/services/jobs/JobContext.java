@@ -1,20 +1,173 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  private JobLogLinesRepository jobLogLinesRepository;
+  @Getter private Job job;
 
-  public void log(String message) {
+  /** if set, lines are pushed to live subscribers once they have been written */
+  @Setter private JobLogStreamService logStream;
+  @Getter @Setter private long nextSeq = 0;
+
+  // progress is written to the job's row at most once per progressIntervalMs; reports in
+  // between only update the job in memory, and are written by the next flushProgress
+  @Setter private JobsRepository jobsRepository;
+  @Setter private long progressIntervalMs;
+  private boolean progressPending;
+  private long lastProgressMillis;
+
+  // set from another thread when the job is cancelled or times out: "cancelled" or "timed_out"
+  @Getter private volatile String stopReason;
+
+  // buffered mode: lines are held here until flushSize lines are waiting, or until log or
+  // flushIfDue finds flushIntervalMs has passed since the last flush; the buffer is guarded by
+  // this, as flushIfDue is called from the thread that checks on running jobs
+  private final int flushSize;
+  private final long flushIntervalMs;
+  private final List<JobLogLine> buffer = new ArrayList<>();
+  private long lastFlushMillis = System.currentTimeMillis();
+
+  public JobContext(JobLogLinesRepository jobLogLinesRepository, Job job) {
+    this(jobLogLinesRepository, job, 1, 0);
+  }
+
+  /**
+   * Creates a job context that buffers log lines and writes them in batches.
+   *
+   * @param jobLogLinesRepository repository the lines are written to
+   * @param job the job being run
+   * @param flushSize number of buffered lines that triggers a flush; 1 writes every line as it is
+   *     logged
+   * @param flushIntervalMs maximum time, in milliseconds, a line may wait in the buffer before the
+   *     next call to log or flushIfDue flushes it
+   */
+  public JobContext(
+      JobLogLinesRepository jobLogLinesRepository, Job job, int flushSize, long flushIntervalMs) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.job = job;
+    this.flushSize = Math.max(flushSize, 1);
+    this.flushIntervalMs = flushIntervalMs;
+  }
+
+  /**
+   * Appends a message to the job's log. A message holding several lines is stored as one log line
+   * per line, so lines are numbered the same way whether the log is read live or after it has been
+   * compacted into a single text.
+   *
+   * @param message the message
+   */
+  public synchronized void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    ZonedDateTime loggedAt = ZonedDateTime.now();
+    List<JobLogLine> lines = new ArrayList<>();
+    for (String text : message.split("\n", -1)) {
+      lines.add(
+          JobLogLine.builder()
+              .jobId(job.getId())
+              .seq(nextSeq++)
+              .loggedAt(loggedAt)
+              .line(text)
+              .build());
+    }
+
+    if (flushSize == 1) {
+      if (jobLogLinesRepository != null) lines.forEach(jobLogLinesRepository::save);
+      if (logStream != null) logStream.publish(job.getId(), lines);
+      return;
+    }
+
+    buffer.addAll(lines);
+    if (buffer.size() >= flushSize
+        || System.currentTimeMillis() - lastFlushMillis >= flushIntervalMs) {
+      flush();
+    }
+  }
+
+  /**
+   * Reports how far through its work the job is. Jobs may call this as often as they like;
+   * updates are coalesced so that the database is written at most once per progress interval.
+   *
+   * @param done units of work done
+   * @param total units of work in total
+   */
+  public synchronized void progress(long done, long total) {
+    if (done < 0 || total < 0) {
+      throw new IllegalArgumentException("Progress must not be negative");
+    }
+    job.setProgressDone(done);
+    job.setProgressTotal(total);
+    progressPending = true;
+    if (System.currentTimeMillis() - lastProgressMillis >= progressIntervalMs) {
+      flushProgress();
+    }
+  }
+
+  /** Writes progress reported since the last write, if any. */
+  public synchronized void flushProgress() {
+    if (!progressPending) return;
+    progressPending = false;
+    lastProgressMillis = System.currentTimeMillis();
+    if (jobsRepository != null) {
+      jobsRepository.updateProgress(job.getId(), job.getProgressDone(), job.getProgressTotal());
+    }
+  }
+
+  /**
+   * Returns whether the job has been asked to stop, because it was cancelled or ran past its
+   * timeout. Long-running jobs should check this, or call checkpoint, between units of work.
+   *
+   * @return true if the job should stop
+   */
+  public boolean isCancelled() {
+    return stopReason != null;
+  }
+
+  /**
+   * Stops the job if it has been asked to stop.
+   *
+   * @throws JobCancelledException if the job has been cancelled or has timed out
+   */
+  public void checkpoint() {
+    if (stopReason != null) {
+      throw new JobCancelledException(stopReason);
+    }
+  }
+
+  /** Asks the job to stop; the first reason given wins. */
+  void stop(String reason) {
+    if (stopReason == null) {
+      stopReason = reason;
+    }
+  }
+
+  /**
+   * Writes buffered log lines if flushIntervalMs has passed since the last flush, so the last lines
+   * of a job that has gone quiet are not held back until it logs again or finishes.
+   */
+  public synchronized void flushIfDue() {
+    if (!buffer.isEmpty() && System.currentTimeMillis() - lastFlushMillis >= flushIntervalMs) {
+      flush();
+    }
+  }
+
+  /** Writes any buffered log lines in a single batch. */
+  public synchronized void flush() {
+    lastFlushMillis = System.currentTimeMillis();
+    if (buffer.isEmpty()) return;
+    List<JobLogLine> lines = new ArrayList<>(buffer);
+    buffer.clear();
+    if (jobLogLinesRepository != null) jobLogLinesRepository.insertAll(lines);
+    if (logStream != null) logStream.publish(job.getId(), lines);
   }
 }
@@ -3,4 +3,10 @@ package edu.ucsb.cs156.example.services.jobs;
 @FunctionalInterface
 public interface JobContextConsumer {
   void accept(JobContext c) throws Exception;
+
+  /**
+   * Called instead of accept when the job will never run, because it was rejected or cancelled
+   * before it started, so that it can release anything it holds, such as a temporary file.
+   */
+  default void discard() {}
 }
@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of job logs. Logs are compressed and decompressed as streams, a line at a
+ * time, so reading the start of a large log does not decompress the rest of it.
+ */
+public final class JobLogCompression {
+  private static final int BUFFER_SIZE = 8192;
+
+  private JobLogCompression() {}
+
+  /**
+   * Compresses a log.
+   *
+   * @param lines the lines of the log; they are joined with \n
+   * @return the log, compressed with gzip
+   */
+  public static byte[] compress(Iterable<String> lines) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Writer out =
+        new OutputStreamWriter(new GZIPOutputStream(bytes, BUFFER_SIZE), StandardCharsets.UTF_8)) {
+      boolean first = true;
+      for (String line : lines) {
+        if (!first) out.write('\n');
+        out.write(line != null ? line : "");
+        first = false;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decompresses a whole log.
+   *
+   * @param data the log, compressed with gzip
+   * @return the log
+   */
+  public static String decompress(byte[] data) {
+    StringBuilder log = new StringBuilder();
+    try (Reader in = reader(data)) {
+      char[] chunk = new char[BUFFER_SIZE];
+      for (int n = in.read(chunk); n != -1; n = in.read(chunk)) {
+        log.append(chunk, 0, n);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return log.toString();
+  }
+
+  /**
+   * Reads a range of lines from a compressed log, decompressing only as far as the last line
+   * wanted. Lines are split on \n alone, as when the log is split as text.
+   *
+   * @param data the log, compressed with gzip
+   * @param offset index of the first line to return
+   * @param limit maximum number of lines to return
+   * @return the lines
+   */
+  public static List<String> readLines(byte[] data, long offset, long limit) {
+    List<String> lines = new ArrayList<>();
+    if (limit <= 0) {
+      return lines;
+    }
+    long index = 0;
+    StringBuilder line = new StringBuilder();
+    try (Reader in = reader(data)) {
+      char[] chunk = new char[BUFFER_SIZE];
+      for (int n = in.read(chunk); n != -1; n = in.read(chunk)) {
+        for (int i = 0; i < n; i++) {
+          char c = chunk[i];
+          if (c != '\n') {
+            if (index >= offset) line.append(c);
+            continue;
+          }
+          if (index >= offset) {
+            lines.add(line.toString());
+            line.setLength(0);
+            if (lines.size() >= limit) return lines;
+          }
+          index++;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (index >= offset) {
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+
+  private static Reader reader(byte[] data) throws IOException {
+    return new InputStreamReader(
+        new GZIPInputStream(new ByteArrayInputStream(data), BUFFER_SIZE), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,186 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * This is a service that pushes job log lines to Server-Sent Event subscribers as they are
+ * written.
+ *
+ * Each event carries the line's sequence number as its id, so a client that reconnects with
+ * Last-Event-ID is sent only the lines it has not yet seen.
+ *
+ * Lines logged by a job on this instance are pushed as they are written. A job may be running
+ * on another instance, so the log lines of every job with subscribers are also polled from the
+ * database every app.jobs.log.stream-poll-interval-ms, and its stream is ended once the job is
+ * seen to be finished.
+ */
+@Service
+@Slf4j
+public class JobLogStreamService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Value("${app.jobs.log.stream-timeout-ms:600000}")
+  private long streamTimeoutMs;
+
+  private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  /**
+   * Opens a stream of log lines for a job. Lines already written after afterSeq are sent first;
+   * new lines follow as they are written, and the stream ends once the job is finished.
+   *
+   * @param jobId id of the job
+   * @param afterSeq sequence number of the last line the client has seen, or -1 for all lines
+   * @return the emitter for the stream
+   */
+  public SseEmitter subscribe(long jobId, long afterSeq) {
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+    Subscriber subscriber = new Subscriber(new SseEmitter(streamTimeoutMs), afterSeq);
+    if (JobRetentionService.FINISHED_STATUSES.contains(job.getStatus())) {
+      subscriber.send(
+          jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, afterSeq));
+      subscriber.finish(job.getStatus());
+      return subscriber.emitter;
+    }
+
+    Runnable remove = () -> unsubscribe(jobId, subscriber);
+    subscriber.emitter.onCompletion(remove);
+    subscriber.emitter.onTimeout(remove);
+    subscriber.emitter.onError(e -> remove.run());
+
+    // subscribe before replaying the job's lines, so that nothing written in between is
+    // missed; the subscriber skips lines it has already sent. If the job finishes before it is
+    // subscribed to, the next poll ends the stream.
+    subscribers.compute(
+        jobId,
+        (id, list) -> {
+          List<Subscriber> jobSubscribers = list != null ? list : new CopyOnWriteArrayList<>();
+          jobSubscribers.add(subscriber);
+          return jobSubscribers;
+        });
+    subscriber.send(
+        jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, afterSeq));
+    return subscriber.emitter;
+  }
+
+  private void unsubscribe(long jobId, Subscriber subscriber) {
+    subscribers.computeIfPresent(
+        jobId,
+        (id, list) -> {
+          list.remove(subscriber);
+          return list.isEmpty() ? null : list;
+        });
+  }
+
+  /**
+   * Sends newly written lines to everyone subscribed to their job.
+   *
+   * @param jobId id of the job
+   * @param lines the lines, in sequence order
+   */
+  public void publish(long jobId, List<JobLogLine> lines) {
+    List<Subscriber> jobSubscribers = subscribers.get(jobId);
+    if (jobSubscribers == null) return;
+    jobSubscribers.forEach(s -> s.send(lines));
+  }
+
+  /**
+   * Ends every stream for a job that has finished, telling subscribers its final status.
+   *
+   * @param job the finished job
+   */
+  public void complete(Job job) {
+    List<Subscriber> jobSubscribers = subscribers.remove(job.getId());
+    if (jobSubscribers == null) return;
+    jobSubscribers.forEach(s -> s.finish(job.getStatus()));
+  }
+
+  /**
+   * Sends subscribers the lines written since they were last sent any, including lines written
+   * by jobs running on other instances, and ends the streams of jobs that have finished.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.stream-poll-interval-ms:1000}")
+  public void poll() {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    Map<Long, Job> jobs = new HashMap<>();
+    jobsRepository.findAllById(subscribers.keySet()).forEach(job -> jobs.put(job.getId(), job));
+    subscribers.forEach(
+        (jobId, jobSubscribers) -> {
+          long afterSeq =
+              jobSubscribers.stream().mapToLong(Subscriber::getLastSeq).min().orElse(-1);
+          List<JobLogLine> lines =
+              jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, afterSeq);
+          jobSubscribers.forEach(s -> s.send(lines));
+          Job job = jobs.get(jobId);
+          if (job == null) {
+            // deleted while it was being streamed
+            List<Subscriber> removed = subscribers.remove(jobId);
+            if (removed != null) removed.forEach(s -> s.finish("deleted"));
+          } else if (JobRetentionService.FINISHED_STATUSES.contains(job.getStatus())) {
+            complete(job);
+          }
+        });
+  }
+  private static class Subscriber {
+    private final SseEmitter emitter;
+    private long lastSeq;
+
+    private Subscriber(SseEmitter emitter, long lastSeq) {
+      this.emitter = emitter;
+      this.lastSeq = lastSeq;
+    }
+
+    private synchronized long getLastSeq() {
+      return lastSeq;
+    }
+
+    private synchronized void send(List<JobLogLine> lines) {
+      try {
+        for (JobLogLine line : lines) {
+          if (line.getSeq() <= lastSeq) continue;
+          emitter.send(
+              SseEmitter.event()
+                  .id(Long.toString(line.getSeq()))
+                  .name("log")
+                  .data(Objects.toString(line.getLine(), "")));
+          lastSeq = line.getSeq();
+        }
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Dropping job log subscriber: {}", e.getMessage());
+        emitter.completeWithError(e);
+      }
+    }
+
+    private synchronized void finish(String status) {
+      try {
+        emitter.send(SseEmitter.event().name("status").data(status));
+        emitter.complete();
+      } catch (IOException | IllegalStateException e) {
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
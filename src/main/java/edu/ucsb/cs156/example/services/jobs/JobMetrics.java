@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters for background jobs, exposed at /actuator/metrics. Meters are tagged with the
+ * job's class (job) and, once it has finished, its final status (status):
+ *
+ * <ul>
+ *   <li>jobs.submitted: jobs launched or queued
+ *   <li>jobs.rejected: jobs turned away because the job executor was full
+ *   <li>jobs.wait: time from a job being created to starting to run
+ *   <li>jobs.duration: time a job ran for, by final status; the failure rate is the share with
+ *       status error
+ *   <li>jobs.running: jobs running on this instance
+ *   <li>jobs.queued: jobs waiting to run, in the durable queue or an instance's JobScheduler,
+ *       across all instances
+ * </ul>
+ *
+ * The job executor's own pool and queue sizes are published by Spring Boot as executor.* with
+ * name=jobExecutor.
+ */
+@Component
+public class JobMetrics {
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @PostConstruct
+  void registerGauges() {
+    Gauge.builder("jobs.queued", jobsRepository, repository -> repository.countByStatus("queued"))
+        .description("Jobs waiting to run")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Publishes the number of jobs running on this instance.
+   *
+   * @param running the jobs running on this instance
+   */
+  void registerRunning(Map<?, ?> running) {
+    Gauge.builder("jobs.running", running, Map::size)
+        .description("Jobs running on this instance")
+        .register(meterRegistry);
+  }
+
+  public void submitted(JobContextConsumer jobFunction) {
+    Counter.builder("jobs.submitted")
+        .tag("job", jobName(jobFunction))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  public void rejected(JobContextConsumer jobFunction) {
+    Counter.builder("jobs.rejected")
+        .tag("job", jobName(jobFunction))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Records how long a job waited to start.
+   *
+   * @param job the job, which is starting now
+   * @param jobFunction the job's code
+   */
+  public void started(Job job, JobContextConsumer jobFunction) {
+    if (job.getCreatedAt() == null) {
+      return;
+    }
+    Duration wait = Duration.between(job.getCreatedAt(), ZonedDateTime.now());
+    Timer.builder("jobs.wait")
+        .tag("job", jobName(jobFunction))
+        .register(meterRegistry)
+        .record(wait.isNegative() ? Duration.ZERO : wait);
+  }
+
+  /**
+   * Records how long a job ran for.
+   *
+   * @param jobFunction the job's code
+   * @param status the job's final status
+   * @param nanos how long it ran, in nanoseconds
+   */
+  public void finished(JobContextConsumer jobFunction, String status, long nanos) {
+    Timer.builder("jobs.duration")
+        .tag("job", jobName(jobFunction))
+        .tag("status", status)
+        .register(meterRegistry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Names a job for tagging: the simple name of its class, or for a lambda, of the class it was
+   * written in, so that tags do not include generated class names.
+   *
+   * @param jobFunction the job's code
+   * @return the name
+   */
+  static String jobName(JobContextConsumer jobFunction) {
+    String name = jobFunction.getClass().getName();
+    int lambda = name.indexOf("$$Lambda");
+    if (lambda >= 0) {
+      name = name.substring(0, lambda);
+    }
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+}
@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.lang.management.ManagementFactory;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service for the durable job queue, which keeps queued jobs in the jobs table so that
+ * any instance can run them and a job survives the instance that launched it.
+ *
+ * A job moves from queued to claimed when a worker claims it, then to running and finally to
+ * complete, error, cancelled or timed_out. A claim is a lease that the worker renews with a
+ * heartbeat; if the worker dies, the lease runs out and the job is claimed again by another
+ * worker, up to app.jobs.queue.max-attempts times. A claimed job runs through the worker's
+ * JobScheduler, so it shares the job executor with the jobs launched on that instance.
+ */
+@Service
+@Slf4j
+public class JobQueueService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Lazy @Autowired private JobService jobService;
+
+  @Value("${app.jobs.queue.lease-ms:60000}")
+  private long leaseMs;
+
+  @Value("${app.jobs.queue.max-attempts:3}")
+  private int maxAttempts;
+
+  @Value("${app.jobs.scheduler.max-per-user:0}")
+  private int maxPerUser;
+
+  /** identifies this instance in the claimed_by column, e.g. 1234@hostname */
+  @Getter private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+  /**
+   * Adds a job to the queue.
+   *
+   * @param jobFunction the job; it is stored as JSON
+   * @param job the record to queue the job in, with who launched it, its timeout and priority;
+   *     its status, type and payload are filled in here
+   * @return the queued job
+   */
+  public Job enqueue(DurableJob jobFunction, Job job) {
+    job.setStatus("queued");
+    job.setJobType(jobFunction.getClass().getName());
+    job.setPayload(payload(jobFunction));
+    jobsRepository.save(job);
+    return job;
+  }
+
+  /**
+   * Writes a job as JSON, as it is stored in the queue.
+   *
+   * @param jobFunction the job
+   * @return the job as JSON
+   */
+  public String payload(DurableJob jobFunction) {
+    try {
+      return mapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Job %s cannot be stored as JSON".formatted(jobFunction.getClass().getName()), e);
+    }
+  }
+
+  /**
+   * Claims up to max jobs for this worker. Jobs whose lease has expired with no attempts left are
+   * marked as failed first.
+   *
+   * @param max maximum number of jobs to claim
+   * @return the claimed jobs
+   */
+  @Transactional
+  public List<Job> claim(int max) {
+    if (max <= 0) return List.of();
+
+    ZonedDateTime now = ZonedDateTime.now();
+    jobsRepository.failExhausted(now, maxAttempts);
+    List<Long> ids = jobsRepository.lockClaimableIds(now, maxAttempts, maxPerUser, max);
+    if (ids.isEmpty()) return List.of();
+
+    jobsRepository.claim(ids, workerId, now, now.plusNanos(leaseMs * 1_000_000));
+    List<Job> claimed = new ArrayList<>();
+    jobsRepository.findAllById(ids).forEach(claimed::add);
+    return claimed;
+  }
+
+  /** Renews the lease on every unfinished job claimed by this worker. */
+  @Transactional
+  public void renewLeases() {
+    ZonedDateTime now = ZonedDateTime.now();
+    jobsRepository.renewLeases(workerId, now, now.plusNanos(leaseMs * 1_000_000));
+  }
+
+  /**
+   * Hands a claimed job to the JobScheduler, which starts it once the job executor has room. A job
+   * the JobScheduler has no room for is put back on the queue.
+   *
+   * @param job a job returned by claim
+   */
+  public void dispatch(Job job) {
+    JobContextConsumer jobFunction;
+    try {
+      Class<?> type = Class.forName(job.getJobType());
+      if (!DurableJob.class.isAssignableFrom(type)) {
+        throw new ClassNotFoundException(job.getJobType() + " is not a DurableJob");
+      }
+      jobFunction = (JobContextConsumer) mapper.readValue(job.getPayload(), type);
+    } catch (ClassNotFoundException | JsonProcessingException e) {
+      log.error("Job {} cannot be read back from the queue", job.getId(), e);
+      job.setStatus("error");
+      JobContext context = new JobContext(jobLogLinesRepository, job);
+      context.setNextSeq(jobService.nextLogSeq(job));
+      context.log("Job cannot be read back from the queue: " + e.getMessage());
+      job.setLogLines(context.getNextSeq());
+      jobsRepository.save(job);
+      return;
+    }
+
+    if (!jobService.runClaimed(job, jobFunction)) {
+      log.info("No room for job {} in the JobScheduler; returning it to the queue", job.getId());
+      job.setStatus("queued");
+      job.setClaimedBy(null);
+      job.setLeaseExpiresAt(null);
+      job.setAttempts(job.getAttempts() - 1);
+      jobsRepository.save(job);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Polls the durable job queue and runs the jobs it claims through the JobScheduler. Only present
+ * when app.jobs.queue.enabled is true; every instance with it enabled shares the queue.
+ */
+@Component
+@ConditionalOnProperty(name = "app.jobs.queue.enabled", havingValue = "true")
+public class JobQueueWorker {
+  @Autowired private JobQueueService jobQueueService;
+
+  @Autowired private JobScheduler jobScheduler;
+
+  @Value("${app.jobs.queue.batch-size:10}")
+  private int batchSize;
+
+  /**
+   * Claims as many jobs as could start now, up to batch-size. The JobScheduler's free slots are
+   * shared with jobs launched on this instance, so queued jobs never overfill the job executor.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.poll-interval-ms:1000}")
+  public void poll() {
+    int available = jobScheduler.available();
+    jobQueueService.claim(Math.min(available, batchSize)).forEach(jobQueueService::dispatch);
+  }
+
+  @Scheduled(fixedDelayString = "${app.jobs.queue.heartbeat-interval-ms:10000}")
+  public void heartbeat() {
+    jobQueueService.renewLeases();
+  }
+}
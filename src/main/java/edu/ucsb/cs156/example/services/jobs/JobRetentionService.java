@@ -0,0 +1,199 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.UnfinishedJobStatusException;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that keeps the jobs tables from growing forever. On a schedule it deletes
+ * finished jobs older than app.jobs.retention.max-age-days, and compacts the logs of finished
+ * jobs older than app.jobs.retention.compact-after-days by folding their log lines into the log
+ * column of the job, which the log readers fall back to. Logs of at least
+ * app.jobs.log.compress-threshold-bytes are gzipped into compressed_job_logs instead.
+ *
+ * Both are done a batch of jobs at a time, each batch in its own transaction, so no single
+ * statement locks or deletes an unbounded number of rows.
+ */
+@Service
+@Slf4j
+public class JobRetentionService {
+  /** statuses of jobs that will not change again */
+  public static final List<String> FINISHED_STATUSES =
+      List.of("complete", "error", "cancelled", "timed_out", "rejected");
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private CompressedJobLogsRepository compressedJobLogsRepository;
+
+  @Lazy @Autowired private JobRetentionService self;
+
+  @Value("${app.jobs.retention.max-age-days:30}")
+  private int maxAgeDays;
+
+  @Value("${app.jobs.retention.compact-after-days:7}")
+  private int compactAfterDays;
+
+  @Value("${app.jobs.retention.batch-size:500}")
+  private int batchSize;
+
+  @Value("${app.jobs.log.compress-threshold-bytes:4096}")
+  private long compressThresholdBytes;
+
+  @Scheduled(cron = "${app.jobs.retention.cron:0 17 3 * * *}")
+  public void sweep() {
+    sweep(ZonedDateTime.now());
+  }
+
+  /**
+   * Deletes and compacts old jobs.
+   *
+   * @param now the current time
+   */
+  public void sweep(ZonedDateTime now) {
+    int deleted = 0;
+    if (maxAgeDays > 0) {
+      ZonedDateTime before = now.minusDays(maxAgeDays);
+      List<Long> ids;
+      do {
+        ids = jobsRepository.findIdsFinishedBefore(FINISHED_STATUSES, before, Limit.of(batchSize));
+        if (!ids.isEmpty()) {
+          deleted += self.deleteJobs(ids);
+        }
+      } while (ids.size() == batchSize);
+    }
+
+    int compacted = 0;
+    if (compactAfterDays > 0) {
+      ZonedDateTime before = now.minusDays(compactAfterDays);
+      List<Long> ids;
+      do {
+        ids =
+            jobLogLinesRepository.findJobIdsToCompact(
+                FINISHED_STATUSES, before, Limit.of(batchSize));
+        if (!ids.isEmpty()) {
+          self.compactLogs(ids);
+          compacted += ids.size();
+        }
+      } while (ids.size() == batchSize);
+    }
+
+    log.info("Job retention: deleted {} jobs, compacted {} job logs", deleted, compacted);
+  }
+
+  /**
+   * Deletes the jobs matching the given filters, and their logs, a batch at a time. Unless asked
+   * to, jobs that have not finished are not deleted, since they may still be running or waiting to
+   * run. Asked to delete every job, with no filters, it does so in one statement per table.
+   *
+   * @param status only delete jobs with this status, or null for any status; unless
+   *     includeUnfinished, it must be one of FINISHED_STATUSES
+   * @param createdBefore only delete jobs created before this time, or null for any time
+   * @param includeUnfinished whether to delete jobs that have not finished too
+   * @return the number of jobs deleted
+   * @throws UnfinishedJobStatusException if status is not one of FINISHED_STATUSES and
+   *     includeUnfinished is false
+   */
+  public int deleteMatching(String status, ZonedDateTime createdBefore, boolean includeUnfinished) {
+    if (includeUnfinished) {
+      if (status == null && createdBefore == null) {
+        return self.deleteAll();
+      }
+      return deleteInBatches(
+          limit -> jobsRepository.findIdsMatching(status, createdBefore, limit));
+    }
+    if (status != null && !FINISHED_STATUSES.contains(status)) {
+      throw new UnfinishedJobStatusException(status, FINISHED_STATUSES);
+    }
+    List<String> statuses = status == null ? FINISHED_STATUSES : List.of(status);
+    return deleteInBatches(
+        limit -> jobsRepository.findIdsWithStatusInMatching(statuses, createdBefore, limit));
+  }
+
+  private int deleteInBatches(Function<Limit, List<Long>> findIds) {
+    int deleted = 0;
+    List<Long> ids;
+    do {
+      ids = findIds.apply(Limit.of(batchSize));
+      if (!ids.isEmpty()) {
+        deleted += self.deleteJobs(ids);
+      }
+    } while (ids.size() == batchSize);
+    return deleted;
+  }
+
+  /**
+   * Deletes every job and every log.
+   *
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  public int deleteAll() {
+    jobLogLinesRepository.deleteAllInBulk();
+    compressedJobLogsRepository.deleteAllInBulk();
+    return jobsRepository.deleteAllInBulk();
+  }
+
+  /**
+   * Deletes a batch of jobs and their log lines.
+   *
+   * @param ids ids of the jobs
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  public int deleteJobs(List<Long> ids) {
+    jobLogLinesRepository.deleteAllByJobIdIn(ids);
+    compressedJobLogsRepository.deleteAllByJobIdIn(ids);
+    return jobsRepository.deleteAllByIdIn(ids);
+  }
+
+  /**
+   * Replaces the log lines of a batch of jobs with a single log per job, compressed if it is
+   * large.
+   *
+   * @param jobIds ids of the jobs
+   */
+  @Transactional
+  public void compactLogs(List<Long> jobIds) {
+    for (Long jobId : jobIds) {
+      List<String> lines =
+          jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId).stream()
+              .map(JobLogLine::getLine)
+              .map(line -> line != null ? line : "")
+              .toList();
+      String log = String.join("\n", lines);
+      // a message may hold several lines, and the log is read back split on \n
+      long lineCount = log.isEmpty() ? 0 : log.chars().filter(c -> c == '\n').count() + 1;
+      long size = log.getBytes(StandardCharsets.UTF_8).length;
+      if (size < compressThresholdBytes) {
+        jobsRepository.updateLog(jobId, log, lineCount);
+        continue;
+      }
+      jobsRepository.updateLogLines(jobId, lineCount);
+      compressedJobLogsRepository.save(
+          CompressedJobLog.builder()
+              .jobId(jobId)
+              .lineCount(lineCount)
+              .uncompressedSize(size)
+              .data(JobLogCompression.compress(lines))
+              .build());
+    }
+    jobLogLinesRepository.deleteAllByJobIdIn(jobIds);
+  }
+}
@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides the order in which jobs run on this instance, both those launched here and those claimed
+ * from the durable queue. Rather than waiting in the job executor's FIFO queue, jobs wait here and
+ * are handed to the executor only when it has room, so that one user launching many jobs cannot
+ * starve everyone else.
+ *
+ * The next job to run is chosen by, in order:
+ *
+ * <ol>
+ *   <li>priority, highest first;
+ *   <li>the user with the fewest jobs running, so users share the executor;
+ *   <li>the user who least recently had a job started, i.e. round-robin between users;
+ *   <li>the order jobs were launched in.
+ * </ol>
+ *
+ * Users at app.jobs.scheduler.max-per-user running jobs are skipped until one of their jobs
+ * finishes.
+ */
+@Component
+public class JobScheduler {
+
+  /** a job waiting to run */
+  public record Pending(Job job, JobContextConsumer jobFunction, long seq) {}
+
+  private static final Comparator<Pending> ORDER =
+      Comparator.comparingInt((Pending p) -> p.job().getPriority())
+          .reversed()
+          .thenComparingLong(Pending::seq);
+
+  private final int maxRunning;
+  private final int maxPending;
+  private final int maxPerUser;
+
+  private final Map<Long, PriorityQueue<Pending>> pendingByUser = new HashMap<>();
+  private final Map<Long, Integer> runningByUser = new HashMap<>();
+  private final Map<Long, Long> lastStartByUser = new HashMap<>();
+  private final Map<Long, Long> runningJobs = new HashMap<>();
+  private int pendingCount;
+  private long seq;
+
+  /**
+   * @param maxRunning most jobs handed to the executor at once
+   * @param maxPending most jobs waiting; more are refused
+   * @param maxPerUser most jobs running at once for any one user; 0 for no limit
+   */
+  public JobScheduler(
+      @Value("${app.jobs.executor.max-size:4}") int maxRunning,
+      @Value("${app.jobs.executor.queue-capacity:50}") int maxPending,
+      @Value("${app.jobs.scheduler.max-per-user:0}") int maxPerUser) {
+    this.maxRunning = maxRunning;
+    this.maxPending = maxPending;
+    this.maxPerUser = maxPerUser;
+  }
+
+  /**
+   * Adds a job to those waiting to run.
+   *
+   * @param job the job
+   * @param jobFunction the job's code
+   * @return false if there are already as many jobs waiting as allowed
+   */
+  public synchronized boolean add(Job job, JobContextConsumer jobFunction) {
+    if (pendingCount >= maxPending) {
+      return false;
+    }
+    pendingByUser
+        .computeIfAbsent(userKey(job), user -> new PriorityQueue<>(ORDER))
+        .add(new Pending(job, jobFunction, seq++));
+    pendingCount++;
+    return true;
+  }
+
+  /**
+   * Takes the next job to run, if the executor has room for it, and counts it as running until
+   * finished is called.
+   *
+   * @return the job, or null if no job may start now
+   */
+  public synchronized Pending next() {
+    if (runningJobs.size() >= maxRunning) {
+      return null;
+    }
+    Long bestUser = null;
+    Pending best = null;
+    for (Map.Entry<Long, PriorityQueue<Pending>> entry : pendingByUser.entrySet()) {
+      Long user = entry.getKey();
+      if (maxPerUser > 0 && running(user) >= maxPerUser) {
+        continue;
+      }
+      Pending head = entry.getValue().peek();
+      if (best == null || isBefore(head, user, best, bestUser)) {
+        best = head;
+        bestUser = user;
+      }
+    }
+    if (best == null) {
+      return null;
+    }
+
+    PriorityQueue<Pending> queue = pendingByUser.get(bestUser);
+    queue.poll();
+    if (queue.isEmpty()) {
+      pendingByUser.remove(bestUser);
+    }
+    pendingCount--;
+    runningByUser.merge(bestUser, 1, Integer::sum);
+    lastStartByUser.put(bestUser, seq++);
+    runningJobs.put(best.job().getId(), bestUser);
+    return best;
+  }
+
+  /**
+   * Records that a job taken with next has finished, making room for another.
+   *
+   * @param jobId id of the job
+   * @return true if the job was one of this scheduler's
+   */
+  public synchronized boolean finished(long jobId) {
+    Long user = runningJobs.remove(jobId);
+    if (user == null) {
+      return false;
+    }
+    runningByUser.computeIfPresent(user, (u, n) -> n > 1 ? n - 1 : null);
+    return true;
+  }
+
+  /**
+   * Removes a job that is still waiting, e.g. because it has been cancelled.
+   *
+   * @param jobId id of the job
+   * @return the job, or null if it was not waiting
+   */
+  public synchronized Pending remove(long jobId) {
+    for (Map.Entry<Long, PriorityQueue<Pending>> entry : pendingByUser.entrySet()) {
+      PriorityQueue<Pending> queue = entry.getValue();
+      for (Pending pending : queue) {
+        if (pending.job().getId() == jobId) {
+          queue.remove(pending);
+          if (queue.isEmpty()) {
+            pendingByUser.remove(entry.getKey());
+          }
+          pendingCount--;
+          return pending;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of jobs that could start now: the free running slots, less the jobs
+   *     already waiting for them
+   */
+  public synchronized int available() {
+    return Math.max(0, maxRunning - runningJobs.size() - pendingCount);
+  }
+
+  /**
+   * @return the number of jobs waiting to run
+   */
+  public synchronized int pendingCount() {
+    return pendingCount;
+  }
+
+  private boolean isBefore(Pending a, Long userA, Pending b, Long userB) {
+    int byPriority = Integer.compare(b.job().getPriority(), a.job().getPriority());
+    if (byPriority != 0) return byPriority < 0;
+    int byRunning = Integer.compare(running(userA), running(userB));
+    if (byRunning != 0) return byRunning < 0;
+    int byLastStart = Long.compare(lastStart(userA), lastStart(userB));
+    if (byLastStart != 0) return byLastStart < 0;
+    return a.seq() < b.seq();
+  }
+
+  private int running(Long user) {
+    return runningByUser.getOrDefault(user, 0);
+  }
+
+  private long lastStart(Long user) {
+    return lastStartByUser.getOrDefault(user, -1L);
+  }
+
+  // jobs launched by no one (e.g. by the system) share one key
+  private static Long userKey(Job job) {
+    return job.getCreatedBy() != null ? job.getCreatedBy().getId() : 0L;
+  }
+}
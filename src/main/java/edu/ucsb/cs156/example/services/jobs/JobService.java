@@ -1,53 +1,556 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyNotSupportedException;
+import edu.ucsb.cs156.example.models.JobLogPage;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@Slf4j
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private CompressedJobLogsRepository compressedJobLogsRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobQueueService jobQueueService;
+
+  @Autowired private JobMetrics jobMetrics;
+
+  @Autowired private JobScheduler jobScheduler;
+
   @Lazy @Autowired private JobService self;
 
+  @Value("${app.jobs.queue.enabled:false}")
+  private boolean queueEnabled;
+
+  @Value("${app.jobs.log.buffered:false}")
+  private boolean logBuffered;
+
+  @Value("${app.jobs.log.flush-size:100}")
+  private int logFlushSize;
+
+  @Value("${app.jobs.log.flush-interval-ms:1000}")
+  private long logFlushIntervalMs;
+
+  @Value("${app.jobs.progress.interval-ms:1000}")
+  private long progressIntervalMs;
+
+  @Value("${app.jobs.timeout-ms:0}")
+  private long defaultTimeoutMs;
+
+  private static final Set<String> UNFINISHED_STATUSES = Set.of("queued", "claimed", "running");
+
+  // jobs running on this instance, so that they can be stopped
+  private final Map<Long, RunningJob> running = new ConcurrentHashMap<>();
+
+  // jobs created before this are not this instance's
+  private final ZonedDateTime startedAt = ZonedDateTime.now();
+
+  @PostConstruct
+  void registerMetrics() {
+    jobMetrics.registerRunning(running);
+  }
+
+  /**
+   * Fails the in-process jobs that an earlier run of the application left queued or running,
+   * e.g. because it crashed or was restarted. They were waiting in its JobScheduler or running on
+   * its executor, so nothing will finish them, and unfinished they would hold their idempotency
+   * keys forever. Durable jobs are left to the queue, which claims them again once their lease
+   * runs out. This assumes in-process jobs are launched by a single instance.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void failOrphanedJobs() {
+    int failed = jobsRepository.failOrphaned(startedAt);
+    if (failed > 0) {
+      log.warn("Failed {} jobs left unfinished by an earlier run", failed);
+    }
+  }
+
+  /**
+   * Runs a job in the background, with the default timeout (app.jobs.timeout-ms).
+   *
+   * @param jobFunction the job
+   * @return the job record, with status queued or rejected
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, null, 0);
+  }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+  /**
+   * Runs a job in the background, with the default priority of 0.
+   *
+   * @param jobFunction the job
+   * @param timeout how long the job may run before it is stopped with status timed_out; null for
+   *     the default timeout
+   * @return the job record, with status queued or rejected
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Duration timeout) {
+    return runAsJob(jobFunction, timeout, 0);
+  }
 
+  /**
+   * Runs a job in the background, with no idempotency key.
+   *
+   * @param jobFunction the job
+   * @param timeout how long the job may run before it is stopped with status timed_out; null for
+   *     the default timeout
+   * @param priority jobs with a higher priority run before jobs with a lower one
+   * @return the job record, with status queued or rejected
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Duration timeout, int priority) {
+    return runAsJob(jobFunction, timeout, priority, null);
+  }
+
+  /**
+   * Runs a job in the background. When the durable queue is enabled, a DurableJob is queued in
+   * the database to be run by any instance; any other job waits in the JobScheduler until the job
+   * executor has room for it, and then runs on this instance.
+   *
+   * With an idempotency key, launching the same job again while the first launch is still
+   * queued or running returns the first job instead of starting another. Keys are scoped to the
+   * user launching the job. Only a DurableJob can be launched with a key, since its parameters
+   * are compared as JSON.
+   *
+   * @param jobFunction the job
+   * @param timeout how long the job may run before it is stopped with status timed_out; null for
+   *     the default timeout
+   * @param priority jobs with a higher priority run before jobs with a lower one
+   * @param idempotencyKey a key chosen by the client, or null
+   * @return the job record, with status queued or rejected
+   * @throws IdempotencyKeyConflictException if an unfinished job with the same key is a
+   *     different job
+   * @throws IdempotencyKeyNotSupportedException if a key is given for a job that is not a
+   *     DurableJob
+   */
+  public Job runAsJob(
+      JobContextConsumer jobFunction, Duration timeout, int priority, String idempotencyKey) {
+    Long timeoutMs = null;
+    if (timeout != null) {
+      timeoutMs = timeout.toMillis();
+    } else if (defaultTimeoutMs > 0) {
+      timeoutMs = defaultTimeoutMs;
+    }
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .timeoutMs(timeoutMs)
+            .priority(priority)
+            .build();
+    if (idempotencyKey != null) {
+      job.setIdempotencyKey(idempotencyKey);
+      job.setRequestHash(requestHash(job, jobFunction));
+      Optional<Job> launched = findLaunched(job);
+      if (launched.isPresent()) {
+        return launched.get();
+      }
+    }
+
+    try {
+      if (queueEnabled && jobFunction instanceof DurableJob durableJob) {
+        Job queued = jobQueueService.enqueue(durableJob, job);
+        jobMetrics.submitted(jobFunction);
+        return queued;
+      }
+      // running once the JobScheduler hands it to the job executor
+      job.setStatus("queued");
+      jobsRepository.save(job);
+    } catch (DataIntegrityViolationException e) {
+      if (idempotencyKey == null) throw e;
+      // the same launch was made concurrently, and saved first
+      return findLaunched(job).orElseThrow(() -> e);
+    }
+    jobMetrics.submitted(jobFunction);
+
+    if (!jobScheduler.add(job, jobFunction)) {
+      reject(job, jobFunction, "too many jobs are waiting");
+      return job;
+    }
+    dispatchPending();
     return job;
   }
 
-  @Async
+  /**
+   * Runs a job claimed from the durable queue. It waits in the JobScheduler like any other job,
+   * so that queued jobs and jobs launched on this instance share the job executor's slots.
+   *
+   * @param job the claimed job
+   * @param jobFunction the job, read back from the queue
+   * @return false if there are already as many jobs waiting as allowed, and the job was not
+   *     taken
+   */
+  public boolean runClaimed(Job job, JobContextConsumer jobFunction) {
+    if (!jobScheduler.add(job, jobFunction)) {
+      return false;
+    }
+    dispatchPending();
+    return true;
+  }
+
+  /**
+   * Finds the unfinished job launched with the same idempotency key as a new job. A finished job
+   * gives up its key, so that the key can be used again.
+   */
+  private Optional<Job> findLaunched(Job job) {
+    Optional<Job> existing =
+        jobsRepository.findByCreatedByAndIdempotencyKey(
+            job.getCreatedBy(), job.getIdempotencyKey());
+    if (existing.isEmpty()) {
+      return existing;
+    }
+    Job launched = existing.get();
+    if (!UNFINISHED_STATUSES.contains(launched.getStatus())) {
+      jobsRepository.releaseIdempotencyKey(launched.getId());
+      return Optional.empty();
+    }
+    if (!job.getRequestHash().equals(launched.getRequestHash())) {
+      throw new IdempotencyKeyConflictException(job.getIdempotencyKey(), launched.getId());
+    }
+    return existing;
+  }
+
+  /** Hashes who launched a job, what it is and its options, as a hex string. */
+  private String requestHash(Job job, JobContextConsumer jobFunction) {
+    if (!(jobFunction instanceof DurableJob durableJob)) {
+      throw new IdempotencyKeyNotSupportedException(jobFunction.getClass());
+    }
+    String request =
+        String.join(
+            "\n",
+            job.getCreatedBy() != null ? Long.toString(job.getCreatedBy().getId()) : "",
+            jobFunction.getClass().getName(),
+            jobQueueService.payload(durableJob),
+            String.valueOf(job.getTimeoutMs()),
+            Integer.toString(job.getPriority()));
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(sha256.digest(request.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Hands waiting jobs to the job executor, in the order the JobScheduler chooses, until it has
+   * no more room. Called whenever a job is added or finishes.
+   */
+  void dispatchPending() {
+    for (JobScheduler.Pending next = jobScheduler.next();
+        next != null;
+        next = jobScheduler.next()) {
+      try {
+        self.runJobAsync(next.job(), next.jobFunction());
+      } catch (TaskRejectedException e) {
+        jobScheduler.finished(next.job().getId());
+        reject(next.job(), next.jobFunction(), e.getMessage());
+      }
+    }
+  }
+
+  private void reject(Job job, JobContextConsumer jobFunction, String reason) {
+    log.warn("Job {} rejected: {}", job.getId(), reason);
+    jobMetrics.rejected(jobFunction);
+    job.setStatus("rejected");
+    JobContext context = new JobContext(jobLogLinesRepository, job);
+    context.log("Job rejected: job executor is at capacity");
+    job.setLogLines(context.getNextSeq());
+    jobsRepository.save(job);
+    jobFunction.discard();
+  }
+
+  @Async(JobExecutorConfig.JOB_EXECUTOR)
   public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+    JobContext context =
+        logBuffered
+            ? new JobContext(jobLogLinesRepository, job, logFlushSize, logFlushIntervalMs)
+            : new JobContext(jobLogLinesRepository, job);
+    context.setLogStream(jobLogStreamService);
+    context.setJobsRepository(jobsRepository);
+    context.setProgressIntervalMs(progressIntervalMs);
+    if (job.getAttempts() > 1) {
+      // a queued job whose previous worker died; keep the lines it already logged
+      context.setNextSeq(nextLogSeq(job));
+      context.log("Retrying job (attempt %d)".formatted(job.getAttempts()));
+    }
 
+    // only the database row is updated, as the job record may still be read by whoever launched
+    // it; a job cancelled in the database while it waited is stopped by checkRunningJobs
+    jobsRepository.markRunning(job.getId());
+    jobMetrics.started(job, jobFunction);
+    long startNanos = System.nanoTime();
+    RunningJob handle = new RunningJob(Thread.currentThread(), context, job.getTimeoutMs());
+    running.put(job.getId(), handle);
+    Exception failure = null;
     try {
       jobFunction.accept(context);
     } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
+      failure = e;
+    } finally {
+      handle.finish();
+      running.remove(job.getId());
+      // clear an interrupt from stop() so it does not leak into the next job on this thread
+      Thread.interrupted();
+    }
+
+    try {
+      if ("timed_out".equals(context.getStopReason())) {
+        job.setStatus("timed_out");
+        context.log("Job timed out after %d ms".formatted(job.getTimeoutMs()));
+      } else if (context.isCancelled()) {
+        job.setStatus("cancelled");
+        context.log("Job cancelled");
+      } else if (failure != null) {
+        job.setStatus("error");
+        context.log(failure.getMessage());
+      } else {
+        job.setStatus("complete");
+      }
+      context.flush();
+      job.setLogLines(context.getNextSeq());
+      jobsRepository.save(job);
+      jobMetrics.finished(jobFunction, job.getStatus(), System.nanoTime() - startNanos);
+      jobLogStreamService.complete(job);
+    } finally {
+      // make room for the next waiting job, even if recording this one's status failed
+      if (jobScheduler.finished(job.getId())) {
+        dispatchPending();
+      }
+    }
+  }
+
+  /**
+   * Cancels a job. A job running on this instance is interrupted and records its own final
+   * status once it stops, and one still waiting in the JobScheduler is never started; a queued
+   * job, or one running on another instance, is marked cancelled in the database, which stops it
+   * from being claimed or is noticed by the instance running it. Jobs that have already finished
+   * are left as they are.
+   *
+   * @param id id of the job
+   * @return the job
+   */
+  @Transactional
+  public Job cancel(Long id) {
+    Job job =
+        jobsRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Job.class, id));
+
+    RunningJob handle = running.get(id);
+    if (handle != null && handle.stop("cancelled")) {
+      return job;
+    }
+    JobScheduler.Pending waiting = jobScheduler.remove(id);
+    if (waiting != null) {
+      Job waitingJob = waiting.job();
+      waitingJob.setStatus("cancelled");
+      JobContext context = new JobContext(jobLogLinesRepository, waitingJob);
+      context.log("Job cancelled");
+      waitingJob.setLogLines(context.getNextSeq());
+      jobsRepository.save(waitingJob);
+      jobLogStreamService.complete(waitingJob);
+      waiting.jobFunction().discard();
+      return waitingJob;
+    }
+    if (jobsRepository.stopUnfinished(id, "cancelled") > 0) {
+      job.setStatus("cancelled");
+    }
+    return job;
+  }
+
+  /**
+   * Stops jobs running on this instance that have run past their timeout, or that another
+   * instance has marked cancelled in the database. Also writes progress that jobs have reported
+   * since their last write, and log lines that have waited in a buffer for the flush interval, so
+   * neither is held back much longer than these intervals by a job that has gone quiet.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.check-interval-ms:1000}")
+  public void checkRunningJobs() {
+    if (running.isEmpty()) {
       return;
     }
+    running
+        .values()
+        .forEach(
+            handle -> {
+              handle.context.flushProgress();
+              handle.context.flushIfDue();
+            });
+    long now = System.currentTimeMillis();
+    running.values().stream()
+        .filter(handle -> now >= handle.deadlineMillis)
+        .forEach(handle -> handle.stop("timed_out"));
+    // a copy, as a job finishing while the query binds the ids would break iteration of the set
+    jobsRepository
+        .findIdsWithStatus(List.copyOf(running.keySet()), "cancelled")
+        .forEach(
+            id -> {
+              RunningJob handle = running.get(id);
+              if (handle != null) handle.stop("cancelled");
+            });
+  }
 
-    job.setStatus("complete");
-    jobsRepository.save(job);
+  /** The thread a job is running on, so it can be interrupted, and when it times out. */
+  private static class RunningJob {
+    private final Thread thread;
+    private final JobContext context;
+    private final long deadlineMillis;
+    private boolean finished;
+
+    RunningJob(Thread thread, JobContext context, Long timeoutMs) {
+      this.thread = thread;
+      this.context = context;
+      this.deadlineMillis =
+          timeoutMs != null ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+    }
+
+    /** Asks the job to stop and interrupts its thread, unless it has already finished. */
+    synchronized boolean stop(String reason) {
+      if (finished) {
+        return false;
+      }
+      context.stop(reason);
+      thread.interrupt();
+      return true;
+    }
+
+    synchronized void finish() {
+      finished = true;
+    }
   }
 
+  /**
+   * Returns the sequence number for the next line of a job's log.
+   *
+   * @param job the job
+   * @return one more than the sequence number of the job's last log line, or 0 if it has none
+   */
+  public long nextLogSeq(Job job) {
+    return jobLogLinesRepository
+        .findFirstByJobIdOrderBySeqDesc(job.getId())
+        .map(line -> line.getSeq() + 1)
+        .orElse(0L);
+  }
+
+  /**
+   * Reassembles the log of a job from its log lines, in the order they were logged. Jobs whose
+   * log has been compacted, and jobs that were run before log lines were stored separately, fall
+   * back to the compressed log or the log column.
+   *
+   * @param jobId id of the job
+   * @return the log of the job, one line per log line
+   */
   public String getJobLogs(Long jobId) {
     Job job =
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
+    List<JobLogLine> lines = jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId);
+    if (!lines.isEmpty()) {
+      return lines.stream().map(JobLogLine::getLine).collect(Collectors.joining("\n"));
+    }
+
+    Optional<CompressedJobLog> compressed = compressedJobLogsRepository.findById(jobId);
+    if (compressed.isPresent()) {
+      return JobLogCompression.decompress(compressed.get().getData());
+    }
+
     String log = job.getLog();
     return log != null ? log : "";
   }
+
+  /**
+   * Reads a range of lines from the log of a job, without reading the rest of the log.
+   *
+   * @param jobId id of the job
+   * @param offset index of the first line to return; a negative offset counts back from the end
+   *     of the log, so -10 returns the last 10 lines
+   * @param limit maximum number of lines to return
+   * @return the requested lines, with their position in the log and the log's total length
+   */
+  public JobLogPage getJobLogLines(Long jobId, long offset, long limit) {
+    Optional<JobLogLine> last = jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(jobId);
+    if (last.isPresent()) {
+      long total = last.get().getSeq() + 1;
+      offset = clampOffset(offset, total);
+      long end = limit >= total - offset ? total : offset + limit;
+      List<String> lines =
+          offset >= end
+              ? List.of()
+              : jobLogLinesRepository
+                  .findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, offset, end - 1)
+                  .stream()
+                  .map(JobLogLine::getLine)
+                  .toList();
+      return JobLogPage.builder().offset(offset).total(total).lines(lines).build();
+    }
+
+    // large compacted logs: decompress only as far as the last line wanted
+    Optional<CompressedJobLog> compressed = compressedJobLogsRepository.findById(jobId);
+    if (compressed.isPresent()) {
+      long total = compressed.get().getLineCount();
+      offset = clampOffset(offset, total);
+      List<String> lines =
+          offset >= total
+              ? List.of()
+              : JobLogCompression.readLines(compressed.get().getData(), offset, limit);
+      return JobLogPage.builder().offset(offset).total(total).lines(lines).build();
+    }
+
+    // small compacted logs, and jobs from before log lines were stored separately,
+    // only have the log column
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+    String log = job.getLog() != null ? job.getLog() : "";
+    List<String> all = log.isEmpty() ? List.of() : Arrays.asList(log.split("\n", -1));
+    long total = all.size();
+    offset = clampOffset(offset, total);
+    long end = limit >= total - offset ? total : offset + limit;
+    List<String> lines = offset >= end ? List.of() : all.subList((int) offset, (int) end);
+    return JobLogPage.builder().offset(offset).total(total).lines(lines).build();
+  }
+
+  private static long clampOffset(long offset, long total) {
+    return offset < 0 ? Math.max(total + offset, 0) : offset;
+  }
 }
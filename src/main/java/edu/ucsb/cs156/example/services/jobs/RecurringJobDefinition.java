@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.time.Duration;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A job to run on a schedule. Declare one as a bean and the RecurringJobRegistry runs it, either
+ * on a cron schedule or at a fixed rate, as a normal Job.
+ *
+ * <pre>
+ * &#64;Bean
+ * RecurringJobDefinition nightlyRollup(RollupJob job) {
+ *   return RecurringJobDefinition.builder()
+ *       .name("nightly-rollup")
+ *       .cron("0 0 2 * * *")
+ *       .job(job)
+ *       .build();
+ * }
+ * </pre>
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class RecurringJobDefinition {
+  /** identifies the schedule across instances and restarts; must be unique */
+  private String name;
+
+  /** a Spring cron expression, e.g. "0 0 2 * * *"; exactly one of cron and fixedRate is set */
+  private String cron;
+
+  /** time between the starts of consecutive runs */
+  private Duration fixedRate;
+
+  /** how long each run may take; null for the default timeout */
+  private Duration timeout;
+
+  private int priority;
+
+  private JobContextConsumer job;
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.RecurringJob;
+import edu.ucsb.cs156.example.repositories.RecurringJobsRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs every RecurringJobDefinition bean on its schedule. Each run is launched with
+ * JobService.runAsJob, so it is recorded, logged and measured like any other job.
+ *
+ * Every instance schedules every definition; a row per definition in recurring_jobs makes sure
+ * only one instance starts each run, and a run is skipped while the previous one is still going.
+ */
+@Component
+@Slf4j
+public class RecurringJobRegistry implements SchedulingConfigurer {
+  @Autowired private RecurringJobsRepository recurringJobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired(required = false)
+  private List<RecurringJobDefinition> definitions = List.of();
+
+  @Value("${app.jobs.recurring.stale-after-ms:86400000}")
+  private long staleAfterMs;
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar registrar) {
+    Set<String> names = new HashSet<>();
+    for (RecurringJobDefinition definition : definitions) {
+      validate(definition);
+      if (!names.add(definition.getName())) {
+        throw new IllegalArgumentException(
+            "Recurring job %s is defined more than once".formatted(definition.getName()));
+      }
+      createRow(definition.getName());
+      RecordingTrigger trigger = new RecordingTrigger(trigger(definition));
+      registrar.addTriggerTask(() -> fire(definition, trigger.scheduled), trigger);
+      log.info("Scheduled recurring job {}", definition.getName());
+    }
+  }
+
+  /**
+   * Starts a run of a recurring job, unless another instance has already started this run or
+   * the previous run is still going.
+   *
+   * @param definition the recurring job
+   * @param scheduled when this run was scheduled for
+   * @return the job started, or null if the run was skipped
+   */
+  public Job fire(RecurringJobDefinition definition, Instant scheduled) {
+    ZonedDateTime firedAt = scheduled.atZone(ZoneId.systemDefault());
+    // instances schedule fixed-rate jobs from their own start times, so runs within half an
+    // interval of each other are taken to be the same run
+    Duration sameRun = interval(definition, firedAt).dividedBy(2);
+    Duration staleAfter =
+        definition.getTimeout() != null
+            ? definition.getTimeout().multipliedBy(2)
+            : Duration.ofMillis(staleAfterMs);
+    int claimed =
+        recurringJobsRepository.claimRun(
+            definition.getName(),
+            firedAt,
+            firedAt.minus(sameRun),
+            ZonedDateTime.now().minus(staleAfter));
+    if (claimed == 0) {
+      log.debug("Skipping recurring job {} scheduled for {}", definition.getName(), firedAt);
+      return null;
+    }
+
+    Job job =
+        jobService.runAsJob(definition.getJob(), definition.getTimeout(), definition.getPriority());
+    recurringJobsRepository.recordJob(definition.getName(), job.getId());
+    return job;
+  }
+
+  private void createRow(String name) {
+    if (recurringJobsRepository.existsById(name)) {
+      return;
+    }
+    try {
+      recurringJobsRepository.save(RecurringJob.builder().name(name).build());
+    } catch (DataIntegrityViolationException e) {
+      // another instance created it first
+    }
+  }
+
+  private static void validate(RecurringJobDefinition definition) {
+    if (definition.getName() == null || definition.getJob() == null) {
+      throw new IllegalArgumentException("Recurring jobs need a name and a job");
+    }
+    if ((definition.getCron() == null) == (definition.getFixedRate() == null)) {
+      throw new IllegalArgumentException(
+          "Recurring job %s needs exactly one of cron and fixedRate"
+              .formatted(definition.getName()));
+    }
+  }
+
+  private static Trigger trigger(RecurringJobDefinition definition) {
+    if (definition.getCron() != null) {
+      return new CronTrigger(definition.getCron());
+    }
+    PeriodicTrigger trigger = new PeriodicTrigger(definition.getFixedRate());
+    trigger.setFixedRate(true);
+    return trigger;
+  }
+
+  private static Duration interval(RecurringJobDefinition definition, ZonedDateTime firedAt) {
+    if (definition.getFixedRate() != null) {
+      return definition.getFixedRate();
+    }
+    ZonedDateTime next = CronExpression.parse(definition.getCron()).next(firedAt);
+    return Duration.between(firedAt, next);
+  }
+
+  /**
+   * Remembers the time each run was scheduled for; Spring asks the trigger for the next time
+   * only after the current run returns, so while a run is going this is its own scheduled time.
+   */
+  private static class RecordingTrigger implements Trigger {
+    private final Trigger delegate;
+    private volatile Instant scheduled;
+
+    RecordingTrigger(Trigger delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Instant nextExecution(TriggerContext context) {
+      scheduled = delegate.nextExecution(context);
+      return scheduled;
+    }
+  }
+}
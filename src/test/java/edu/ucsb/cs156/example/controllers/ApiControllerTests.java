@@ -13,6 +13,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -58,5 +59,18 @@ public class ApiControllerTests extends ControllerTestCase {
                 assertEquals("String with id 7 not found", json.get("message"));
         }
 
-}
+        @Test
+        public void if_match_versions_reads_the_versions_from_a_list_of_etags() {
+                assertEquals(null, ApiController.ifMatchVersions(null));
+                assertEquals(null, ApiController.ifMatchVersions(" "));
+                assertEquals(null, ApiController.ifMatchVersions(" * "));
+                assertEquals(null, ApiController.ifMatchVersions("\"3\", *"));
+                assertEquals(List.of(3L), ApiController.ifMatchVersions("\"3\""));
+                assertEquals(
+                                List.of(3L, 5L),
+                                ApiController.ifMatchVersions("\"3\", W/\"4\",\"5\""));
+                assertEquals(List.of(), ApiController.ifMatchVersions("W/\"4\""));
+                assertEquals(List.of(), ApiController.ifMatchVersions("\"abc\""));
+        }
 
+}
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -52,6 +56,48 @@ public class ArticlesControllerTests extends ControllerTestCase {
     // ObjectMapper mapper;
 
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_export() throws Exception {
+        // arrange
+        when(exportService.export(eq("articles"), eq("csv"), any()))
+                .thenReturn(ResponseEntity.ok().build());
+
+        // act
+        mockMvc.perform(get("/api/articles/export?format=csv"))
+                .andExpect(status().isOk());
+
+        // assert
+        verify(exportService, times(1)).export(eq("articles"), eq("csv"), any());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_get_a_page() throws Exception {
+        // arrange
+        when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                .thenReturn(List.of(
+                    Articles.builder().id(1L).build(),
+                    Articles.builder().id(2L).build(),
+                    Articles.builder().id(3L).build()));
+        when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                .thenReturn(List.of(Articles.builder().id(3L).build()));
+
+        // act
+        MvcResult first = mockMvc.perform(get("/api/articles/page?limit=2"))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult last = mockMvc.perform(get("/api/articles/page?limit=2&after=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<String, Object> firstJson = responseToJson(first);
+        assertEquals(2, ((List<?>) firstJson.get("items")).size());
+        assertEquals("2", firstJson.get("next"));
+        Map<String, Object> lastJson = responseToJson(last);
+        assertEquals(1, ((List<?>) lastJson.get("items")).size());
+        assertEquals(null, lastJson.get("next"));
+    }
+
     @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/articles/all"))
@@ -231,8 +277,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
 
                 String requestBody = mapper.writeValueAsString(editedArticle);
+                editedArticle.setId(67L);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(article1));
+                when(articlesRepository.updateById(eq(67L), eq(editedArticle))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -244,10 +291,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
-                verify(articlesRepository, times(1)).save(editedArticle);
+                verify(articlesRepository, times(1)).updateById(67L, editedArticle);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(editedArticle), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -266,8 +312,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                     .build();
 
                 String requestBody = mapper.writeValueAsString(article1);
+                article1.setId(67L);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(articlesRepository.updateById(eq(67L), eq(article1))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -279,7 +326,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
+                verify(articlesRepository, times(1)).updateById(67L, article1);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
@@ -304,7 +351,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                     .dateAdded(ldt1)
                     .build();
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+                when(articlesRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -313,8 +360,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(eq(article1));
+                verify(articlesRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -326,7 +372,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -335,9 +381,109 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
 
-}
\ No newline at end of file
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+        // arrange
+        List<Articles> incoming = List.of(
+                Articles.builder().id(7L).title("first").build(),
+                Articles.builder().id(8L).title("second").build());
+        List<Articles> created = List.of(
+                Articles.builder().title("first").build(),
+                Articles.builder().title("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 1L, BulkResult.CREATED),
+                new BulkResult(1, 2L, BulkResult.CREATED));
+        when(bulkService.insert(eq(articlesRepository), eq(created), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(post("/api/articles/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .insert(eq(articlesRepository), eq(created), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_update() throws Exception {
+        // arrange
+        List<Articles> incoming = List.of(
+                Articles.builder().id(7L).title("first").build(),
+                Articles.builder().id(8L).title("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 7L, BulkResult.UPDATED),
+                new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+        when(bulkService.update(eq(articlesRepository), eq(incoming), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(put("/api/articles/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .update(eq(articlesRepository), eq(incoming), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_delete() throws Exception {
+        // arrange
+        List<Long> ids = List.of(7L, 8L);
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 7L, BulkResult.DELETED),
+                new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+        when(bulkService.delete(eq(articlesRepository), eq(ids), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(delete("/api/articles/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .delete(eq(articlesRepository), eq(ids), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_bulk_post() throws Exception {
+        mockMvc.perform(post("/api/articles/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -9,12 +9,16 @@ import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -28,6 +32,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -53,6 +58,48 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         
 
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("helprequests"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/helprequests/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("helprequests"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        HelpRequest.builder().id(1L).build(),
+                        HelpRequest.builder().id(2L).build(),
+                        HelpRequest.builder().id(3L).build()));
+            when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                    .thenReturn(List.of(HelpRequest.builder().id(3L).build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/helprequests/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/helprequests/page?limit=2&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/helprequests/all"))
@@ -245,8 +292,10 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(helprequestEdited);
+                helprequestEdited.setId(67L);
 
-                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helprequestOrig));
+                when(helpRequestRepository.updateById(eq(67L), eq(helprequestEdited))).thenReturn(1);
+                when(helpRequestRepository.findVersionById(eq(67L))).thenReturn(Optional.of(6L));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -255,13 +304,14 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"6\""))
+                                .andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(67L);
-                verify(helpRequestRepository, times(1)).save(helprequestEdited); // should be saved with correct user
+                verify(helpRequestRepository, times(1)).updateById(67L, helprequestEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(helprequestEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -281,8 +331,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(helprequestEdited);
+                helprequestEdited.setId(67L);
 
-                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.updateById(eq(67L), eq(helprequestEdited))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -294,7 +345,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(67L);
+                verify(helpRequestRepository, times(1)).updateById(67L, helprequestEdited);
+                verify(helpRequestRepository, times(0)).findVersionById(67L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
@@ -318,7 +370,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .solved(true)
                                 .build();
 
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helprequest1));
+                when(helpRequestRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,8 +379,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -340,7 +391,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -349,9 +400,346 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
+                verify(helpRequestRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 not found", json.get("message"));
         }
 
-}
\ No newline at end of file
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_the_version_as_the_etag() throws Exception {
+            // arrange
+            HelpRequest row =
+                    HelpRequest.builder().id(7L).requesterEmail("a@ucsb.edu").version(3L).build();
+            when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/helprequests?id=7"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"3\""))
+                    .andReturn();
+
+            // assert
+            assertEquals(
+                    mapper.writeValueAsString(row), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_helprequest_at_the_version_in_if_match() throws Exception {
+            // arrange
+            HelpRequest edited = HelpRequest.builder().requesterEmail("b@ucsb.edu").build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(helpRequestRepository.updateByIdAndVersion(eq(67L), eq(3L), eq(edited)))
+                    .thenReturn(1);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"4\""))
+                    .andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).updateByIdAndVersion(67L, 3L, edited);
+            verify(helpRequestRepository, times(0)).findVersionById(67L);
+            assertEquals(
+                    mapper.writeValueAsString(edited), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_helprequest_changed_since_the_version_in_if_match()
+                throws Exception {
+            // arrange
+            HelpRequest edited = HelpRequest.builder().requesterEmail("b@ucsb.edu").build();
+            when(helpRequestRepository.updateByIdAndVersion(eq(67L), eq(3L), any()))
+                    .thenReturn(0);
+            when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(edited)))
+                    .andExpect(status().isPreconditionFailed())
+                    .andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("VersionMismatchException", json.get("type"));
+            assertEquals("HelpRequest with id 67 has been changed since the version in If-Match",
+                    json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_editing_a_missing_helprequest_with_if_match_gets_not_found()
+                throws Exception {
+            // arrange
+            HelpRequest edited = HelpRequest.builder().requesterEmail("b@ucsb.edu").build();
+            when(helpRequestRepository.updateByIdAndVersion(eq(67L), eq(3L), any()))
+                    .thenReturn(0);
+            when(helpRequestRepository.existsById(eq(67L))).thenReturn(false);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(edited)))
+                    .andExpect(status().isNotFound())
+                    .andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_weak_etag_in_if_match_never_matches() throws Exception {
+            // arrange
+            when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+            // act
+            mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "W/\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(HelpRequest.builder().build())))
+                    .andExpect(status().isPreconditionFailed());
+
+            // assert
+            verify(helpRequestRepository, times(0)).updateByIdAndVersion(eq(67L), eq(3L), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_if_match_list_matches_any_version_it_names() throws Exception {
+            // arrange
+            HelpRequest edited = HelpRequest.builder().build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(helpRequestRepository.updateByIdAndVersion(eq(67L), eq(4L), eq(edited)))
+                    .thenReturn(1);
+            when(helpRequestRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(1);
+
+            // act
+            mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\", W/\"5\", \"4\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"5\""));
+            mockMvc
+                    .perform(delete("/api/helprequests?id=15")
+                            .with(csrf())
+                            .header("If-Match", "\"1\",\"2\""))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(helpRequestRepository, times(1)).updateByIdAndVersion(67L, 3L, edited);
+            verify(helpRequestRepository, times(0)).updateByIdAndVersion(67L, 5L, edited);
+            verify(helpRequestRepository, times(1)).removeByIdAndVersion(15L, 1L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_if_match_list_holding_a_star_matches_any_version() throws Exception {
+            // arrange
+            HelpRequest edited = HelpRequest.builder().build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(helpRequestRepository.updateById(eq(67L), eq(edited))).thenReturn(1);
+            when(helpRequestRepository.findVersionById(eq(67L))).thenReturn(Optional.of(8L));
+
+            // act
+            mockMvc
+                    .perform(put("/api/helprequests?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\", *")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"8\""));
+
+            // assert
+            verify(helpRequestRepository, times(0))
+                    .updateByIdAndVersion(anyLong(), anyLong(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_helprequest_at_the_version_in_if_match() throws Exception {
+            // arrange
+            when(helpRequestRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(1);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(
+                            delete("/api/helprequests?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(1)).removeByIdAndVersion(15L, 2L);
+            verify(helpRequestRepository, times(0)).removeById(15L);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("HelpRequest with id 15 deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_helprequest_changed_since_the_version_in_if_match()
+                throws Exception {
+            // arrange
+            when(helpRequestRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(0);
+            when(helpRequestRepository.existsById(eq(15L))).thenReturn(true);
+
+            // act
+            mockMvc
+                    .perform(
+                            delete("/api/helprequests?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isPreconditionFailed());
+
+            // assert
+            verify(helpRequestRepository, times(1)).removeByIdAndVersion(15L, 2L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_deleting_a_missing_helprequest_with_if_match_gets_not_found()
+                throws Exception {
+            // arrange
+            when(helpRequestRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(0);
+            when(helpRequestRepository.existsById(eq(15L))).thenReturn(false);
+
+            // act
+            mockMvc
+                    .perform(
+                            delete("/api/helprequests?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isNotFound());
+
+            // assert
+            verify(helpRequestRepository, times(1)).existsById(15L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+            // arrange
+            List<HelpRequest> incoming = List.of(
+                    HelpRequest.builder().id(7L).requesterEmail("first").build(),
+                    HelpRequest.builder().id(8L).requesterEmail("second").build());
+            List<HelpRequest> created = List.of(
+                    HelpRequest.builder().requesterEmail("first").build(),
+                    HelpRequest.builder().requesterEmail("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 1L, BulkResult.CREATED),
+                    new BulkResult(1, 2L, BulkResult.CREATED));
+            when(bulkService.insert(eq(helpRequestRepository), eq(created), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/helprequests/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .insert(eq(helpRequestRepository), eq(created), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<HelpRequest> incoming = List.of(
+                    HelpRequest.builder().id(7L).requesterEmail("first").build(),
+                    HelpRequest.builder().id(8L).requesterEmail("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.UPDATED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(helpRequestRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/helprequests/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(helpRequestRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<Long> ids = List.of(7L, 8L);
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.DELETED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(helpRequestRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/helprequests/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(helpRequestRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/helprequests/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
+}
@@ -8,29 +8,48 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import edu.ucsb.cs156.example.services.jobs.JobQueueService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
+import edu.ucsb.cs156.example.services.jobs.JobScheduler;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.context.annotation.Import;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -38,16 +57,31 @@ import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobLogStreamService.class,
+  JobQueueService.class,
+  JobMetrics.class,
+  JobScheduler.class,
+  JobRetentionService.class,
+  JobExecutorConfig.class,
+  SimpleMeterRegistry.class
+})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean CompressedJobLogsRepository compressedJobLogsRepository;
+
   @MockitoBean UserRepository userRepository;
 
   @Autowired JobService jobService;
 
+  @Autowired JobLogStreamService jobLogStreamService;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -76,6 +110,86 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_first_page_of_job_summaries() throws Exception {
+
+    // arrange
+
+    JobSummary s3 = JobSummary.builder().id(3L).status("running").logLines(4).build();
+    JobSummary s2 = JobSummary.builder().id(2L).status("complete").logLines(0).build();
+    JobSummary s1 = JobSummary.builder().id(1L).status("complete").logLines(9).build();
+
+    when(jobsRepository.findSummaries(null, null, null, null, Limit.of(3)))
+        .thenReturn(List.of(s3, s2, s1));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/summary?limit=2")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(jobsRepository, never()).findAll();
+    String expectedJson =
+        mapper.writeValueAsString(KeysetPage.builder().items(List.of(s3, s2)).next("2").build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_filtered_last_page_of_job_summaries() throws Exception {
+
+    // arrange
+
+    ZonedDateTime createdAfter = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    ZonedDateTime createdBefore = ZonedDateTime.parse("2025-02-01T00:00:00Z");
+    JobSummary s1 = JobSummary.builder().id(1L).status("error").logLines(2).build();
+
+    when(jobsRepository.findSummaries(
+            eq(5L),
+            eq("error"),
+            any(ZonedDateTime.class),
+            any(ZonedDateTime.class),
+            eq(Limit.of(51))))
+        .thenReturn(List.of(s1));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/summary")
+                    .param("after", "5")
+                    .param("status", "error")
+                    .param("createdAfter", "2025-01-01T00:00:00Z")
+                    .param("createdBefore", "2025-02-01T00:00:00Z"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    ArgumentCaptor<ZonedDateTime> after = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> before = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository)
+        .findSummaries(eq(5L), eq("error"), after.capture(), before.capture(), eq(Limit.of(51)));
+    assertEquals(createdAfter.toInstant(), after.getValue().toInstant());
+    assertEquals(createdBefore.toInstant(), before.getValue().toInstant());
+    String expectedJson =
+        mapper.writeValueAsString(KeysetPage.builder().items(List.of(s1)).next(null).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_summary_page_size_is_capped() throws Exception {
+    // act
+    mockMvc.perform(get("/api/jobs/summary?limit=5000")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/jobs/summary?limit=0")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository).findSummaries(null, null, null, null, Limit.of(1001));
+    verify(jobsRepository).findSummaries(null, null, null, null, Limit.of(2));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void api_getJobLogById__admin_logged_in__returns_job_by_id() throws Exception {
@@ -123,9 +237,12 @@ public class JobsControllerTests extends ControllerTestCase {
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_delete_all_jobs() throws Exception {
+  public void admin_can_delete_all_finished_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobsRepository.findIdsWithStatusInMatching(
+            eq(JobRetentionService.FINISHED_STATUSES), eq(null), any()))
+        .thenReturn(List.of(1L, 2L, 3L));
+    when(jobsRepository.deleteAllByIdIn(List.of(1L, 2L, 3L))).thenReturn(3);
 
     // act
     MvcResult response =
@@ -136,12 +253,92 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
-    String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
+    verify(jobLogLinesRepository, times(1)).deleteAllByJobIdIn(List.of(1L, 2L, 3L));
+    verify(compressedJobLogsRepository, times(1)).deleteAllByJobIdIn(List.of(1L, 2L, 3L));
+    verify(jobsRepository, never()).deleteAll();
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "3 jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_delete_jobs_by_status() throws Exception {
+
+    when(jobsRepository.findIdsWithStatusInMatching(eq(List.of("error")), eq(null), any()))
+        .thenReturn(List.of(4L, 5L));
+    when(jobsRepository.deleteAllByIdIn(List.of(4L, 5L))).thenReturn(2);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/all?status=error").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).deleteAllByJobIdIn(List.of(4L, 5L));
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "2 jobs deleted"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_delete_all_jobs_including_unfinished_ones() throws Exception {
+    when(jobsRepository.deleteAllInBulk()).thenReturn(3);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/all?includeUnfinished=true").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).deleteAllInBulk();
+    verify(compressedJobLogsRepository, times(1)).deleteAllInBulk();
+    verify(jobsRepository, times(1)).deleteAllInBulk();
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "3 jobs deleted"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_delete_unfinished_jobs_by_status_when_included() throws Exception {
+    when(jobsRepository.findIdsMatching(eq("running"), eq(null), any()))
+        .thenReturn(List.of(6L));
+    when(jobsRepository.deleteAllByIdIn(List.of(6L))).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/all?status=running&includeUnfinished=true").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).deleteAllByJobIdIn(List.of(6L));
+    verify(jobsRepository, never()).deleteAllInBulk();
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "1 jobs deleted"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_cannot_delete_jobs_by_the_status_of_unfinished_jobs() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/all?status=running").with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(jobsRepository, never()).deleteAllByIdIn(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("UnfinishedJobStatusException", json.get("type"));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void test_getJobLogs_admin_can_get_job_log() throws Exception {
@@ -226,32 +423,6 @@ public class JobsControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_launch_test_job() throws Exception {
 
-    // arrange
-
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
-
     // act
     MvcResult response =
         mockMvc
@@ -263,46 +434,29 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () -> {
+              verify(jobsRepository, times(2)).save(jobCaptor.capture());
+              assertEquals("complete", jobCaptor.getValue().getStatus());
+            });
+
+    ArgumentCaptor<JobLogLine> lineCaptor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(lineCaptor.capture());
+    assertEquals(
+        List.of("Hello World! from test job!", "Goodbye from test job!"),
+        lineCaptor.getAllValues().stream().map(JobLogLine::getLine).toList());
+    assertEquals(null, jobCaptor.getValue().getLog());
   }
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_launch_test_job_that_fails() throws Exception {
 
-    // arrange
-
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
-
     // act
     MvcResult response =
         mockMvc
@@ -313,15 +467,480 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
 
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> {
+              verify(jobsRepository, times(2)).save(jobCaptor.capture());
+              assertEquals("error", jobCaptor.getValue().getStatus());
+            });
+
+    ArgumentCaptor<JobLogLine> lineCaptor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(lineCaptor.capture());
+    assertEquals(
+        List.of("Hello World! from test job!", "Fail!"),
+        lineCaptor.getAllValues().stream().map(JobLogLine::getLine).toList());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_with_timeout() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=60000&timeoutMs=100")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
 
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(100L, jobReturned.getTimeoutMs());
+
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(
+            () -> {
+              jobService.checkRunningJobs();
+              verify(jobsRepository, times(2)).save(jobCaptor.capture());
+              assertEquals("timed_out", jobCaptor.getValue().getStatus());
+            });
+
+    ArgumentCaptor<JobLogLine> lineCaptor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(lineCaptor.capture());
+    assertEquals(
+        List.of("Hello World! from test job!", "Job timed out after 100 ms"),
+        lineCaptor.getAllValues().stream().map(JobLogLine::getLine).toList());
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_with_priority() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0&priority=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(5, jobReturned.getPriority());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(2)).save(any(Job.class)));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void relaunch_with_conflicting_idempotency_key_is_rejected() throws Exception {
+
+    // arrange
+    Job running =
+        Job.builder().id(17L).status("running").idempotencyKey("abc").requestHash("x").build();
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(any(), eq("abc")))
+        .thenReturn(Optional.of(running));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=0")
+                    .header("Idempotency-Key", "abc")
+                    .with(csrf()))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    // assert: the running job was launched with other parameters, so the key conflicts
+    Map<String, Object> json =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    assertEquals("IdempotencyKeyConflictException", json.get("type"));
+    assertEquals(
+        "Idempotency key abc is already in use by job 17 with different parameters",
+        json.get("message"));
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_running_job() throws Exception {
+
+    // arrange: stubbed before launching, as stubbing a mock while the job thread is calling it
+    // can fail
+    when(jobsRepository.findById(any())).thenReturn(Optional.of(Job.builder().build()));
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=60000").with(csrf()))
+        .andExpect(status().isOk());
+
+    // the job is running once it has logged its first line
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobLogLinesRepository, times(1)).save(any()));
+
+    // act
+    mockMvc.perform(post("/api/jobs/cancel?id=0").with(csrf())).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> {
+              verify(jobsRepository, times(2)).save(jobCaptor.capture());
+              assertEquals("cancelled", jobCaptor.getValue().getStatus());
+            });
+    ArgumentCaptor<JobLogLine> lineCaptor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(lineCaptor.capture());
+    assertEquals("Job cancelled", lineCaptor.getValue().getLine());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_queued_job() throws Exception {
+
+    // arrange
+    Job job = Job.builder().id(8L).status("queued").build();
+    when(jobsRepository.findById(eq(8L))).thenReturn(Optional.of(job));
+    when(jobsRepository.stopUnfinished(8L, "cancelled")).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=8").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("cancelled", jobReturned.getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_cancelling_missing_job_gets_404() throws Exception {
+
+    // arrange
+    when(jobsRepository.findById(eq(9L))).thenReturn(Optional.empty());
+
+    // act & assert
+    mockMvc.perform(post("/api/jobs/cancel?id=9").with(csrf())).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_cancel_job() throws Exception {
+    mockMvc.perform(post("/api/jobs/cancel?id=1").with(csrf())).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job_from_last_event_id() throws Exception {
+    // arrange
+    Job job = Job.builder().id(5L).status("complete").build();
+    when(jobsRepository.findById(eq(5L))).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(eq(5L), eq(0L)))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(5L).seq(1).line("second").build(),
+                JobLogLine.builder().jobId(5L).seq(2).line("third").build()));
+
+    // act
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 5L).header("Last-Event-ID", "0"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    // assert
+    assertEquals(
+        "id:1\nevent:log\ndata:second\n\n"
+            + "id:2\nevent:log\ndata:third\n\n"
+            + "event:status\ndata:complete\n\n",
+        result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_running_job_as_lines_are_written() throws Exception {
+    // arrange
+    Job job = Job.builder().id(6L).status("running").build();
+    when(jobsRepository.findById(eq(6L))).thenReturn(Optional.of(job));
+    when(jobsRepository.findAllById(any())).thenReturn(List.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(eq(6L), eq(-1L)))
+        .thenReturn(List.of(JobLogLine.builder().jobId(6L).seq(0).line("first").build()));
+
+    // act
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 6L))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    jobLogStreamService.publish(
+        6L,
+        List.of(
+            JobLogLine.builder().jobId(6L).seq(0).line("first").build(),
+            JobLogLine.builder().jobId(6L).seq(1).line("second").build()));
+    job.setStatus("error");
+    jobLogStreamService.complete(job);
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    // assert
+    assertEquals(
+        "id:0\nevent:log\ndata:first\n\n"
+            + "id:1\nevent:log\ndata:second\n\n"
+            + "event:status\ndata:error\n\n",
+        result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_of_queued_job_stays_open_and_polls_lines_logged_elsewhere() throws Exception {
+    // arrange
+    Job job = Job.builder().id(10L).status("queued").build();
+    when(jobsRepository.findById(eq(10L))).thenReturn(Optional.of(job));
+    when(jobsRepository.findAllById(any())).thenReturn(List.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(eq(10L), eq(-1L)))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 10L))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    // the job is claimed and run by another instance, so its lines are only seen by polling
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(eq(10L), eq(-1L)))
+        .thenReturn(List.of(JobLogLine.builder().jobId(10L).seq(0).line("elsewhere").build()));
+    job.setStatus("running");
+    jobLogStreamService.poll();
+    job.setStatus("complete");
+    jobLogStreamService.poll();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    // assert
+    assertEquals(
+        "id:0\nevent:log\ndata:elsewhere\n\n" + "event:status\ndata:complete\n\n",
+        result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void streams_of_finished_jobs_are_not_kept_as_subscribers() throws Exception {
+    // arrange
+    Job job = Job.builder().id(11L).status("cancelled").build();
+    when(jobsRepository.findById(eq(11L))).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(eq(11L), eq(-1L)))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 11L))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    jobLogStreamService.poll();
+
+    // assert
+    assertEquals("event:status\ndata:cancelled\n\n", result.getResponse().getContentAsString());
+    verify(jobsRepository, never()).findAllById(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void streaming_log_of_missing_job_returns_not_found() throws Exception {
+    // arrange
+    when(jobsRepository.findById(eq(7L))).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 7L))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 7 not found", json.get("message"));
+  }
+
+  private List<JobLogLine> logLines(long jobId, long fromSeq, long toSeq) {
+    List<JobLogLine> lines = new ArrayList<>();
+    for (long seq = fromSeq; seq <= toSeq; seq++) {
+      lines.add(JobLogLine.builder().jobId(jobId).seq(seq).line("line " + seq).build());
+    }
+    return lines;
+  }
+
+  private void mockLogOfTenLines(long jobId) {
+    when(jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(eq(jobId)))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(jobId).seq(9).build()));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(
+            eq(jobId), any(Long.class), any(Long.class)))
+        .thenAnswer(inv -> logLines(jobId, inv.getArgument(1), inv.getArgument(2)));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_log_by_offset_and_limit() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?offset=2&limit=3", 8L))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Log-Offset", "2"))
+        .andExpect(header().string("X-Log-Total-Lines", "10"))
+        .andExpect(content().string("line 2\nline 3\nline 4"));
+    verify(jobLogLinesRepository, times(1)).findAllByJobIdAndSeqBetweenOrderBySeqAsc(8L, 2L, 4L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_log_from_offset_to_end() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?offset=8", 8L))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 8\nline 9"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_first_lines_of_job_log_with_limit_only() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?limit=2", 8L))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 0\nline 1"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_tail_job_log() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?tail=2", 8L))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Log-Offset", "8"))
+        .andExpect(content().string("line 8\nline 9"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_log_by_line_range() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=3-4"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 3-4/10"))
+        .andExpect(header().string("Accept-Ranges", "lines"))
+        .andExpect(content().string("line 3\nline 4"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_log_by_open_ended_and_suffix_line_ranges() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=7-"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 7-9/10"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=-1"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 9-9/10"))
+        .andExpect(content().string("line 9"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void unsatisfiable_line_range_returns_416() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=10-20"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string("Content-Range", "lines */10"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=5-4"))
+        .andExpect(status().isRequestedRangeNotSatisfiable());
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 8L).header("Range", "lines=-"))
+        .andExpect(status().isRequestedRangeNotSatisfiable());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void unparseable_or_overflowing_line_range_returns_416_with_total() throws Exception {
+    // arrange
+    mockLogOfTenLines(8L);
+
+    // act & assert
+    for (String range :
+        List.of(
+            "lines=99999999999999999999-", "lines=-99999999999999999999",
+            "lines=0-9223372036854775807")) {
+      mockMvc
+          .perform(get("/api/jobs/logs/{id}", 8L).header("Range", range))
+          .andExpect(status().isRequestedRangeNotSatisfiable())
+          .andExpect(header().string("Content-Range", "lines */10"));
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void negative_offset_limit_or_tail_returns_400() throws Exception {
+    // act & assert
+    for (String query : List.of("offset=-1", "limit=-1", "tail=-1")) {
+      mockMvc
+          .perform(get("/api/jobs/logs/{id}?" + query, 8L))
+          .andExpect(status().isBadRequest());
+    }
+    verify(jobLogLinesRepository, never()).findFirstByJobIdOrderBySeqDesc(anyLong());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void range_in_other_units_is_ignored() throws Exception {
+    // arrange
+    Job job = Job.builder().id(9L).log("whole log").build();
+    when(jobsRepository.findById(9L)).thenReturn(Optional.of(job));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", 9L).header("Range", "bytes=0-3"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("whole log"));
+  }
 }
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -27,6 +31,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -42,6 +47,48 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("menuitemreviews"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/MenuItemReview/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("menuitemreviews"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        MenuItemReview.builder().id(1L).build(),
+                        MenuItemReview.builder().id(2L).build(),
+                        MenuItemReview.builder().id(3L).build()));
+            when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                    .thenReturn(List.of(MenuItemReview.builder().id(3L).build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/MenuItemReview/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/MenuItemReview/page?limit=2&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/MenuItemReview/all"))
@@ -222,8 +269,10 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEd);
+                menuItemReviewEd.setId(67L);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOg));
+                when(menuItemReviewRepository.updateById(eq(67L), eq(menuItemReviewEd))).thenReturn(1);
+                when(menuItemReviewRepository.findVersionById(eq(67L))).thenReturn(Optional.of(6L));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -232,13 +281,14 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"6\""))
+                                .andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
-                verify(menuItemReviewRepository, times(1)).save(menuItemReviewEd); // should be saved with correct user
+                verify(menuItemReviewRepository, times(1)).updateById(67L, menuItemReviewEd);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuItemReviewEd), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -257,8 +307,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(menuItemReview1);
+                menuItemReview1.setId(67L);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.updateById(eq(67L), eq(menuItemReview1))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -270,7 +321,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).updateById(67L, menuItemReview1);
+                verify(menuItemReviewRepository, times(0)).findVersionById(67L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
@@ -292,7 +344,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .comments("could've been better")
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -301,8 +353,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -314,7 +365,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -323,9 +374,346 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
-        
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_the_version_as_the_etag() throws Exception {
+            // arrange
+            MenuItemReview row =
+                    MenuItemReview.builder().id(7L).reviewerEmail("a@ucsb.edu").version(3L).build();
+            when(menuItemReviewRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/MenuItemReview?id=7"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"3\""))
+                    .andReturn();
+
+            // assert
+            assertEquals(
+                    mapper.writeValueAsString(row), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_review_at_the_version_in_if_match() throws Exception {
+            // arrange
+            MenuItemReview edited = MenuItemReview.builder().reviewerEmail("b@ucsb.edu").build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(menuItemReviewRepository.updateByIdAndVersion(eq(67L), eq(3L), eq(edited)))
+                    .thenReturn(1);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"4\""))
+                    .andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).updateByIdAndVersion(67L, 3L, edited);
+            verify(menuItemReviewRepository, times(0)).findVersionById(67L);
+            assertEquals(
+                    mapper.writeValueAsString(edited), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_review_changed_since_the_version_in_if_match()
+                throws Exception {
+            // arrange
+            MenuItemReview edited = MenuItemReview.builder().reviewerEmail("b@ucsb.edu").build();
+            when(menuItemReviewRepository.updateByIdAndVersion(eq(67L), eq(3L), any()))
+                    .thenReturn(0);
+            when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(true);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(edited)))
+                    .andExpect(status().isPreconditionFailed())
+                    .andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("VersionMismatchException", json.get("type"));
+            assertEquals("MenuItemReview with id 67 has been changed since the version in If-Match",
+                    json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_editing_a_missing_review_with_if_match_gets_not_found()
+                throws Exception {
+            // arrange
+            MenuItemReview edited = MenuItemReview.builder().reviewerEmail("b@ucsb.edu").build();
+            when(menuItemReviewRepository.updateByIdAndVersion(eq(67L), eq(3L), any()))
+                    .thenReturn(0);
+            when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(false);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(edited)))
+                    .andExpect(status().isNotFound())
+                    .andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("MenuItemReview with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_weak_etag_in_if_match_never_matches() throws Exception {
+            // arrange
+            when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(true);
+
+            // act
+            mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "W/\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(MenuItemReview.builder().build())))
+                    .andExpect(status().isPreconditionFailed());
+
+            // assert
+            verify(menuItemReviewRepository, times(0)).updateByIdAndVersion(eq(67L), eq(3L), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_if_match_list_matches_any_version_it_names() throws Exception {
+            // arrange
+            MenuItemReview edited = MenuItemReview.builder().build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(menuItemReviewRepository.updateByIdAndVersion(eq(67L), eq(4L), eq(edited)))
+                    .thenReturn(1);
+            when(menuItemReviewRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(1);
+
+            // act
+            mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\", W/\"5\", \"4\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"5\""));
+            mockMvc
+                    .perform(delete("/api/MenuItemReview/delete?id=15")
+                            .with(csrf())
+                            .header("If-Match", "\"1\",\"2\""))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).updateByIdAndVersion(67L, 3L, edited);
+            verify(menuItemReviewRepository, times(0)).updateByIdAndVersion(67L, 5L, edited);
+            verify(menuItemReviewRepository, times(1)).removeByIdAndVersion(15L, 1L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_if_match_list_holding_a_star_matches_any_version() throws Exception {
+            // arrange
+            MenuItemReview edited = MenuItemReview.builder().build();
+            String requestBody = mapper.writeValueAsString(edited);
+            edited.setId(67L);
+            when(menuItemReviewRepository.updateById(eq(67L), eq(edited))).thenReturn(1);
+            when(menuItemReviewRepository.findVersionById(eq(67L))).thenReturn(Optional.of(8L));
+
+            // act
+            mockMvc
+                    .perform(put("/api/MenuItemReview?id=67")
+                            .with(csrf())
+                            .header("If-Match", "\"3\", *")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"8\""));
+
+            // assert
+            verify(menuItemReviewRepository, times(0))
+                    .updateByIdAndVersion(anyLong(), anyLong(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_review_at_the_version_in_if_match() throws Exception {
+            // arrange
+            when(menuItemReviewRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(1);
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(
+                            delete("/api/MenuItemReview/delete?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).removeByIdAndVersion(15L, 2L);
+            verify(menuItemReviewRepository, times(0)).removeById(15L);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_review_changed_since_the_version_in_if_match()
+                throws Exception {
+            // arrange
+            when(menuItemReviewRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(0);
+            when(menuItemReviewRepository.existsById(eq(15L))).thenReturn(true);
+
+            // act
+            mockMvc
+                    .perform(
+                            delete("/api/MenuItemReview/delete?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isPreconditionFailed());
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).removeByIdAndVersion(15L, 2L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_deleting_a_missing_review_with_if_match_gets_not_found()
+                throws Exception {
+            // arrange
+            when(menuItemReviewRepository.removeByIdAndVersion(eq(15L), eq(2L))).thenReturn(0);
+            when(menuItemReviewRepository.existsById(eq(15L))).thenReturn(false);
+
+            // act
+            mockMvc
+                    .perform(
+                            delete("/api/MenuItemReview/delete?id=15")
+                                    .with(csrf())
+                                    .header("If-Match", "\"2\""))
+                    .andExpect(status().isNotFound());
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).existsById(15L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+            // arrange
+            List<MenuItemReview> incoming = List.of(
+                    MenuItemReview.builder().id(7L).reviewerEmail("first").build(),
+                    MenuItemReview.builder().id(8L).reviewerEmail("second").build());
+            List<MenuItemReview> created = List.of(
+                    MenuItemReview.builder().reviewerEmail("first").build(),
+                    MenuItemReview.builder().reviewerEmail("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 1L, BulkResult.CREATED),
+                    new BulkResult(1, 2L, BulkResult.CREATED));
+            when(bulkService.insert(eq(menuItemReviewRepository), eq(created), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/MenuItemReview/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .insert(eq(menuItemReviewRepository), eq(created), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<MenuItemReview> incoming = List.of(
+                    MenuItemReview.builder().id(7L).reviewerEmail("first").build(),
+                    MenuItemReview.builder().id(8L).reviewerEmail("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.UPDATED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(menuItemReviewRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/MenuItemReview/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(menuItemReviewRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<Long> ids = List.of(7L, 8L);
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.DELETED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(menuItemReviewRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/MenuItemReview/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(menuItemReviewRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/MenuItemReview/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
 }
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -40,6 +44,48 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_export() throws Exception {
+        // arrange
+        when(exportService.export(eq("recommendationrequests"), eq("csv"), any()))
+                .thenReturn(ResponseEntity.ok().build());
+
+        // act
+        mockMvc.perform(get("/api/recommendation-requests/export?format=csv"))
+                .andExpect(status().isOk());
+
+        // assert
+        verify(exportService, times(1)).export(eq("recommendationrequests"), eq("csv"), any());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_get_a_page() throws Exception {
+        // arrange
+        when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                .thenReturn(List.of(
+                    RecommendationRequest.builder().id(1L).build(),
+                    RecommendationRequest.builder().id(2L).build(),
+                    RecommendationRequest.builder().id(3L).build()));
+        when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                .thenReturn(List.of(RecommendationRequest.builder().id(3L).build()));
+
+        // act
+        MvcResult first = mockMvc.perform(get("/api/recommendation-requests/page?limit=2"))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult last = mockMvc.perform(get("/api/recommendation-requests/page?limit=2&after=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<String, Object> firstJson = responseToJson(first);
+        assertEquals(2, ((List<?>) firstJson.get("items")).size());
+        assertEquals("2", firstJson.get("next"));
+        Map<String, Object> lastJson = responseToJson(last);
+        assertEquals(1, ((List<?>) lastJson.get("items")).size());
+        assertEquals(null, lastJson.get("next"));
+    }
+
     // Authorization tests for /api/recommendation-requests/all
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
@@ -208,7 +254,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .done(false)
                                 .build();
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(recommendationRequest1));
+                when(recommendationRequestRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -217,8 +263,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -230,7 +275,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -239,7 +284,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
+                verify(recommendationRequestRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
@@ -272,8 +317,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(recommendationRequestEdited);
+                recommendationRequestEdited.setId(67L);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recommendationrequesterig));
+                when(recommendationRequestRepository.updateById(eq(67L), eq(recommendationRequestEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -285,10 +331,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
-                verify(recommendationRequestRepository, times(1)).save(recommendationRequestEdited);
+                verify(recommendationRequestRepository, times(1)).updateById(67L, recommendationRequestEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(recommendationRequestEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -308,8 +353,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(recommendationRequestEdited);
+                recommendationRequestEdited.setId(67L);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.updateById(eq(67L), eq(recommendationRequestEdited))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -321,7 +367,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
+                verify(recommendationRequestRepository, times(1)).updateById(67L, recommendationRequestEdited);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
         }
@@ -351,9 +397,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 .build();
 
         String requestBody = mapper.writeValueAsString(updated);
+        updated.setId(42L);
 
-        when(recommendationRequestRepository.findById(eq(42L))).thenReturn(Optional.of(original));
-        when(recommendationRequestRepository.save(any(RecommendationRequest.class))).thenReturn(updated);
+        when(recommendationRequestRepository.updateById(eq(42L), eq(updated))).thenReturn(1);
 
         // Act
         MvcResult response = mockMvc.perform(
@@ -365,10 +411,110 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 .andReturn();
 
         // Assert
-        verify(recommendationRequestRepository, times(1)).findById(42L);
-        verify(recommendationRequestRepository, times(1)).save(any(RecommendationRequest.class));
+        verify(recommendationRequestRepository, times(1)).updateById(42L, updated);
 
         String responseString = response.getResponse().getContentAsString();
-        assertEquals(requestBody, responseString);
+        assertEquals(mapper.writeValueAsString(updated), responseString);
         }
-}
\ No newline at end of file
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+        // arrange
+        List<RecommendationRequest> incoming = List.of(
+                RecommendationRequest.builder().id(7L).requesterEmail("first").build(),
+                RecommendationRequest.builder().id(8L).requesterEmail("second").build());
+        List<RecommendationRequest> created = List.of(
+                RecommendationRequest.builder().requesterEmail("first").build(),
+                RecommendationRequest.builder().requesterEmail("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 1L, BulkResult.CREATED),
+                new BulkResult(1, 2L, BulkResult.CREATED));
+        when(bulkService.insert(eq(recommendationRequestRepository), eq(created), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(post("/api/recommendation-requests/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .insert(eq(recommendationRequestRepository), eq(created), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_update() throws Exception {
+        // arrange
+        List<RecommendationRequest> incoming = List.of(
+                RecommendationRequest.builder().id(7L).requesterEmail("first").build(),
+                RecommendationRequest.builder().id(8L).requesterEmail("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 7L, BulkResult.UPDATED),
+                new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+        when(bulkService.update(eq(recommendationRequestRepository), eq(incoming), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(put("/api/recommendation-requests/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .update(eq(recommendationRequestRepository), eq(incoming), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_delete() throws Exception {
+        // arrange
+        List<Long> ids = List.of(7L, 8L);
+        List<BulkResult> results = List.of(
+                new BulkResult(0, 7L, BulkResult.DELETED),
+                new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+        when(bulkService.delete(eq(recommendationRequestRepository), eq(ids), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(delete("/api/recommendation-requests/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .delete(eq(recommendationRequestRepository), eq(ids), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_bulk_post() throws Exception {
+        mockMvc.perform(post("/api/recommendation-requests/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -40,6 +44,48 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("restaurants"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/restaurants/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("restaurants"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        Restaurant.builder().id(1L).build(),
+                        Restaurant.builder().id(2L).build(),
+                        Restaurant.builder().id(3L).build()));
+            when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                    .thenReturn(List.of(Restaurant.builder().id(3L).build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/restaurants/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/restaurants/page?limit=2&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         // Authorization tests for /api/phones/admin/all
 
         @Test
@@ -192,7 +238,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .description("Mexican")
                                 .build();
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+                when(restaurantRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +247,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -214,7 +259,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(restaurantRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +268,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
+                verify(restaurantRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 not found", json.get("message"));
         }
@@ -244,8 +289,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(restaurantEdited);
+                restaurantEdited.setId(67L);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+                when(restaurantRepository.updateById(eq(67L), eq(restaurantEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -257,10 +303,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
-                verify(restaurantRepository, times(1)).save(restaurantEdited); // should be saved with correct user
+                verify(restaurantRepository, times(1)).updateById(67L, restaurantEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(restaurantEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -276,8 +321,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
 
                 String requestBody = mapper.writeValueAsString(editedRestaurant);
+                editedRestaurant.setId(67L);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(restaurantRepository.updateById(eq(67L), eq(editedRestaurant))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -289,9 +335,110 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
+                verify(restaurantRepository, times(1)).updateById(67L, editedRestaurant);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+            // arrange
+            List<Restaurant> incoming = List.of(
+                    Restaurant.builder().id(7L).name("first").build(),
+                    Restaurant.builder().id(8L).name("second").build());
+            List<Restaurant> created = List.of(
+                    Restaurant.builder().name("first").build(),
+                    Restaurant.builder().name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 1L, BulkResult.CREATED),
+                    new BulkResult(1, 2L, BulkResult.CREATED));
+            when(bulkService.insert(eq(restaurantRepository), eq(created), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/restaurants/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .insert(eq(restaurantRepository), eq(created), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<Restaurant> incoming = List.of(
+                    Restaurant.builder().id(7L).name("first").build(),
+                    Restaurant.builder().id(8L).name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.UPDATED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(restaurantRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/restaurants/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(restaurantRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<Long> ids = List.of(7L, 8L);
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.DELETED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(restaurantRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/restaurants/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(restaurantRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/restaurants/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
 }
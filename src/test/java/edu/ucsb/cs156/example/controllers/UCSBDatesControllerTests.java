@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -42,6 +46,48 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("ucsbdates"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/ucsbdates/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("ucsbdates"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        UCSBDate.builder().id(1L).build(),
+                        UCSBDate.builder().id(2L).build(),
+                        UCSBDate.builder().id(3L).build()));
+            when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                    .thenReturn(List.of(UCSBDate.builder().id(3L).build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/ucsbdates/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/ucsbdates/page?limit=2&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -207,7 +253,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .localDateTime(ldt1)
                                 .build();
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +262,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -229,7 +274,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +283,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -264,8 +309,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+                ucsbDateEdited.setId(67L);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateById(eq(67L), eq(ucsbDateEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,10 +323,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateRepository, times(1)).updateById(67L, ucsbDateEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -297,8 +342,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDate);
+                ucsbEditedDate.setId(67L);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.updateById(eq(67L), eq(ucsbEditedDate))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,9 +356,110 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateRepository, times(1)).updateById(67L, ucsbEditedDate);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+            // arrange
+            List<UCSBDate> incoming = List.of(
+                    UCSBDate.builder().id(7L).name("first").build(),
+                    UCSBDate.builder().id(8L).name("second").build());
+            List<UCSBDate> created = List.of(
+                    UCSBDate.builder().name("first").build(),
+                    UCSBDate.builder().name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 1L, BulkResult.CREATED),
+                    new BulkResult(1, 2L, BulkResult.CREATED));
+            when(bulkService.insert(eq(ucsbDateRepository), eq(created), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/ucsbdates/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .insert(eq(ucsbDateRepository), eq(created), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<UCSBDate> incoming = List.of(
+                    UCSBDate.builder().id(7L).name("first").build(),
+                    UCSBDate.builder().id(8L).name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.UPDATED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(ucsbDateRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/ucsbdates/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(ucsbDateRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<Long> ids = List.of(7L, 8L);
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.DELETED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(ucsbDateRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/ucsbdates/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(ucsbDateRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/ucsbdates/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
 }
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -40,6 +44,48 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("ucsbdiningcommons"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/ucsbdiningcommons/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("ucsbdiningcommons"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        UCSBDiningCommons.builder().code("c1").build(),
+                        UCSBDiningCommons.builder().code("c2").build(),
+                        UCSBDiningCommons.builder().code("c3").build()));
+            when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq("c2"), eq(Limit.of(3))))
+                    .thenReturn(List.of(UCSBDiningCommons.builder().code("c3").build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=2&after=c2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("c2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -217,7 +263,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.867427)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.removeById(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +272,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("portola");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +284,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.removeById(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +293,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -279,8 +324,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
+                carrilloEdited.setCode("carrillo");
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateById(eq("carrillo"), eq(carrilloEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -292,10 +338,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsRepository, times(1)).updateById("carrillo", carrilloEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(carrilloEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -314,8 +359,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(editedCommons);
+                editedCommons.setCode("munger-hall");
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.updateById(eq("munger-hall"), eq(editedCommons))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,9 +373,107 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).updateById("munger-hall", editedCommons);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post() throws Exception {
+            // arrange
+            List<UCSBDiningCommons> incoming = List.of(
+                    UCSBDiningCommons.builder().code("ortega").name("first").build(),
+                    UCSBDiningCommons.builder().code("dlg").name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, "ortega", BulkResult.UPDATED),
+                    new BulkResult(1, "dlg", BulkResult.CREATED));
+            when(bulkService.save(eq(ucsbDiningCommonsRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/ucsbdiningcommons/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .save(eq(ucsbDiningCommonsRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<UCSBDiningCommons> incoming = List.of(
+                    UCSBDiningCommons.builder().code("ortega").name("first").build(),
+                    UCSBDiningCommons.builder().code("dlg").name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, "ortega", BulkResult.UPDATED),
+                    new BulkResult(1, "dlg", BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(ucsbDiningCommonsRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/ucsbdiningcommons/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(ucsbDiningCommonsRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<String> ids = List.of("ortega", "dlg");
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, "ortega", BulkResult.DELETED),
+                    new BulkResult(1, "dlg", BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(ucsbDiningCommonsRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/ucsbdiningcommons/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(ucsbDiningCommonsRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/ucsbdiningcommons/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
 }
@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -42,6 +46,48 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         UserRepository userRepository;
 
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_export() throws Exception {
+            // arrange
+            when(exportService.export(eq("ucsbdiningcommonsmenuitems"), eq("csv"), any()))
+                    .thenReturn(ResponseEntity.ok().build());
+
+            // act
+            mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export?format=csv"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(exportService, times(1)).export(eq("ucsbdiningcommonsmenuitems"), eq("csv"), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_get_a_page() throws Exception {
+            // arrange
+            when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                    .thenReturn(List.of(
+                        UCSBDiningCommonsMenuItem.builder().id(1L).build(),
+                        UCSBDiningCommonsMenuItem.builder().id(2L).build(),
+                        UCSBDiningCommonsMenuItem.builder().id(3L).build()));
+            when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(3))))
+                    .thenReturn(List.of(UCSBDiningCommonsMenuItem.builder().id(3L).build()));
+
+            // act
+            MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=2"))
+                    .andExpect(status().isOk()).andReturn();
+            MvcResult last = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=2&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            Map<String, Object> firstJson = responseToJson(first);
+            assertEquals(2, ((List<?>) firstJson.get("items")).size());
+            assertEquals("2", firstJson.get("next"));
+            Map<String, Object> lastJson = responseToJson(last);
+            assertEquals(1, ((List<?>) lastJson.get("items")).size());
+            assertEquals(null, lastJson.get("next"));
+        }
+
         // Authorization tests for /api/ucsbDiningCommonsMenuItem/admin/all
 
         @Test
@@ -192,8 +238,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
+                ucsbDiningCommonsMenuItemEdited.setId(67L);
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItemOrig));
+                when(ucsbDiningCommonsMenuItemRepository.updateById(eq(67L), eq(ucsbDiningCommonsMenuItemEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -205,10 +252,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(ucsbDiningCommonsMenuItemEdited); // should be saved with correct user
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateById(67L, ucsbDiningCommonsMenuItemEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -222,8 +268,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDiningCommonsMenuItem);
+                ucsbEditedDiningCommonsMenuItem.setId(67L);
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.updateById(eq(67L), eq(ucsbEditedDiningCommonsMenuItem))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -235,7 +282,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateById(67L, ucsbEditedDiningCommonsMenuItem);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
@@ -251,7 +298,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .station("Kobe")
                                 .build();
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItem1));
+                when(ucsbDiningCommonsMenuItemRepository.removeById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -260,8 +307,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).removeById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -273,7 +319,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.removeById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -282,8 +328,109 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).removeById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_post_and_ids_given_are_ignored() throws Exception {
+            // arrange
+            List<UCSBDiningCommonsMenuItem> incoming = List.of(
+                    UCSBDiningCommonsMenuItem.builder().id(7L).name("first").build(),
+                    UCSBDiningCommonsMenuItem.builder().id(8L).name("second").build());
+            List<UCSBDiningCommonsMenuItem> created = List.of(
+                    UCSBDiningCommonsMenuItem.builder().name("first").build(),
+                    UCSBDiningCommonsMenuItem.builder().name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 1L, BulkResult.CREATED),
+                    new BulkResult(1, 2L, BulkResult.CREATED));
+            when(bulkService.insert(eq(ucsbDiningCommonsMenuItemRepository), eq(created), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .insert(eq(ucsbDiningCommonsMenuItemRepository), eq(created), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update() throws Exception {
+            // arrange
+            List<UCSBDiningCommonsMenuItem> incoming = List.of(
+                    UCSBDiningCommonsMenuItem.builder().id(7L).name("first").build(),
+                    UCSBDiningCommonsMenuItem.builder().id(8L).name("second").build());
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.UPDATED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.update(eq(ucsbDiningCommonsMenuItemRepository), eq(incoming), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(put("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(incoming)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .update(eq(ucsbDiningCommonsMenuItemRepository), eq(incoming), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete() throws Exception {
+            // arrange
+            List<Long> ids = List.of(7L, 8L);
+            List<BulkResult> results = List.of(
+                    new BulkResult(0, 7L, BulkResult.DELETED),
+                    new BulkResult(1, 8L, BulkResult.NOT_FOUND));
+            when(bulkService.delete(eq(ucsbDiningCommonsMenuItemRepository), eq(ids), any()))
+                    .thenReturn(ResponseEntity.ok(results));
+
+            // act
+            MvcResult response = mockMvc
+                    .perform(delete("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(ids)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            // assert
+            verify(bulkService, times(1))
+                    .delete(eq(ucsbDiningCommonsMenuItemRepository), eq(ids), any());
+            assertEquals(
+                    mapper.writeValueAsString(results),
+                    response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_bulk_post() throws Exception {
+            mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isForbidden());
+        }
 }
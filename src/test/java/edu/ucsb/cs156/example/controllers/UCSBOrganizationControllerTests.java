@@ -8,12 +8,16 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import edu.ucsb.cs156.example.models.BulkResult;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -40,6 +44,48 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_export() throws Exception {
+        // arrange
+        when(exportService.export(eq("ucsborganizations"), eq("csv"), any()))
+                .thenReturn(ResponseEntity.ok().build());
+
+        // act
+        mockMvc.perform(get("/api/ucsborganizations/export?format=csv"))
+                .andExpect(status().isOk());
+
+        // assert
+        verify(exportService, times(1)).export(eq("ucsborganizations"), eq("csv"), any());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_users_can_get_a_page() throws Exception {
+        // arrange
+        when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(Limit.of(3))))
+                .thenReturn(List.of(
+                    UCSBOrganization.builder().orgCode("c1").build(),
+                    UCSBOrganization.builder().orgCode("c2").build(),
+                    UCSBOrganization.builder().orgCode("c3").build()));
+        when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("c2"), eq(Limit.of(3))))
+                .thenReturn(List.of(UCSBOrganization.builder().orgCode("c3").build()));
+
+        // act
+        MvcResult first = mockMvc.perform(get("/api/ucsborganizations/page?limit=2"))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult last = mockMvc.perform(get("/api/ucsborganizations/page?limit=2&after=c2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<String, Object> firstJson = responseToJson(first);
+        assertEquals(2, ((List<?>) firstJson.get("items")).size());
+        assertEquals("c2", firstJson.get("next"));
+        Map<String, Object> lastJson = responseToJson(last);
+        assertEquals(1, ((List<?>) lastJson.get("items")).size());
+        assertEquals(null, lastJson.get("next"));
+    }
+
     // Authorization tests for /api/ucsborganizations/all
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
@@ -190,7 +236,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .inactive(false)
                             .build();
 
-            when(ucsbOrganizationRepository.findById(eq("stud1@ucsb.edu"))).thenReturn(Optional.of(ucsbOrganization1));
+            when(ucsbOrganizationRepository.removeById(eq("stud1@ucsb.edu"))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -199,8 +245,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).findById("stud1@ucsb.edu");
-            verify(ucsbOrganizationRepository, times(1)).delete(ucsbOrganization1);
+            verify(ucsbOrganizationRepository, times(1)).removeById("stud1@ucsb.edu");
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("UCSBOrganization with id stud1@ucsb.edu deleted", json.get("message"));
@@ -210,7 +255,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @Test
     public void admin_tries_to_delete_non_existant_ucsborganization_and_gets_right_error_message() throws Exception {
             // arrange
-            when(ucsbOrganizationRepository.findById(eq("fake-code"))).thenReturn(Optional.empty());
+            when(ucsbOrganizationRepository.removeById(eq("fake-code"))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -219,7 +264,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).findById("fake-code");
+            verify(ucsbOrganizationRepository, times(1)).removeById("fake-code");
             Map<String, Object> json = responseToJson(response);
             assertEquals("UCSBOrganization with id fake-code not found", json.get("message"));
     }
@@ -243,8 +288,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .build();
 
             String requestBody = mapper.writeValueAsString(ucsbOrganizationEdited);
+            ucsbOrganizationEdited.setOrgCode("stud1@ucsb.edu");
 
-            when(ucsbOrganizationRepository.findById(eq("stud1@ucsb.edu"))).thenReturn(Optional.of(ucsbOrganizationOrig));
+            when(ucsbOrganizationRepository.updateById(eq("stud1@ucsb.edu"), eq(ucsbOrganizationEdited))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -256,10 +302,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).findById("stud1@ucsb.edu");
-            verify(ucsbOrganizationRepository, times(1)).save(ucsbOrganizationEdited); // should be saved with updated info
+            verify(ucsbOrganizationRepository, times(1)).updateById("stud1@ucsb.edu", ucsbOrganizationEdited);
             String responseString = response.getResponse().getContentAsString();
-            assertEquals(requestBody, responseString);
+            assertEquals(mapper.writeValueAsString(ucsbOrganizationEdited), responseString);
             
     }
 
@@ -275,8 +320,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .build();
 
             String requestBody = mapper.writeValueAsString(ucsbOrganizationEdited);
+            ucsbOrganizationEdited.setOrgCode("fake-code");
 
-            when(ucsbOrganizationRepository.findById(eq("fake-code"))).thenReturn(Optional.empty());
+            when(ucsbOrganizationRepository.updateById(eq("fake-code"), eq(ucsbOrganizationEdited))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -288,8 +334,106 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).findById("fake-code");
+            verify(ucsbOrganizationRepository, times(1)).updateById("fake-code", ucsbOrganizationEdited);
             Map<String, Object> json = responseToJson(response);
             assertEquals("UCSBOrganization with id fake-code not found", json.get("message"));
     }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_post() throws Exception {
+        // arrange
+        List<UCSBOrganization> incoming = List.of(
+                UCSBOrganization.builder().orgCode("ZPR").orgTranslation("first").build(),
+                UCSBOrganization.builder().orgCode("SKY").orgTranslation("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, "ZPR", BulkResult.UPDATED),
+                new BulkResult(1, "SKY", BulkResult.CREATED));
+        when(bulkService.save(eq(ucsbOrganizationRepository), eq(incoming), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(post("/api/ucsborganizations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .save(eq(ucsbOrganizationRepository), eq(incoming), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_update() throws Exception {
+        // arrange
+        List<UCSBOrganization> incoming = List.of(
+                UCSBOrganization.builder().orgCode("ZPR").orgTranslation("first").build(),
+                UCSBOrganization.builder().orgCode("SKY").orgTranslation("second").build());
+        List<BulkResult> results = List.of(
+                new BulkResult(0, "ZPR", BulkResult.UPDATED),
+                new BulkResult(1, "SKY", BulkResult.NOT_FOUND));
+        when(bulkService.update(eq(ucsbOrganizationRepository), eq(incoming), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(put("/api/ucsborganizations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(incoming)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .update(eq(ucsbOrganizationRepository), eq(incoming), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_delete() throws Exception {
+        // arrange
+        List<String> ids = List.of("ZPR", "SKY");
+        List<BulkResult> results = List.of(
+                new BulkResult(0, "ZPR", BulkResult.DELETED),
+                new BulkResult(1, "SKY", BulkResult.NOT_FOUND));
+        when(bulkService.delete(eq(ucsbOrganizationRepository), eq(ids), any()))
+                .thenReturn(ResponseEntity.ok(results));
+
+        // act
+        MvcResult response = mockMvc
+                .perform(delete("/api/ucsborganizations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // assert
+        verify(bulkService, times(1))
+                .delete(eq(ucsbOrganizationRepository), eq(ids), any());
+        assertEquals(
+                mapper.writeValueAsString(results),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_bulk_post() throws Exception {
+        mockMvc.perform(post("/api/ucsborganizations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+    }
 }
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTarget;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BatchInsertIT {
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private List<UCSBDate> dates(int count) {
+    List<UCSBDate> dates = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      dates.add(
+          UCSBDate.builder()
+              .quarterYYYYQ("20241")
+              .name("day" + i)
+              .localDateTime(LocalDateTime.of(2024, 1, 8, 0, 0).plusDays(i))
+              .build());
+    }
+    return dates;
+  }
+
+  @Test
+  public void insert_all_assigns_distinct_ids_across_batches() {
+    // act
+    List<UCSBDate> inserted = ucsbDateRepository.insertAll(dates(120));
+
+    // assert
+    assertEquals(120, inserted.stream().map(UCSBDate::getId).distinct().count());
+    assertTrue(inserted.stream().allMatch(date -> date.getId() > 0));
+    assertEquals(120, ucsbDateRepository.count());
+    assertEquals("day119", ucsbDateRepository.findById(inserted.get(119).getId()).get().getName());
+  }
+
+  @Test
+  public void rows_inserted_without_an_id_take_it_from_the_same_sequence() {
+    // arrange
+    UCSBDate saved = ucsbDateRepository.save(dates(1).get(0));
+    ImportTarget target = ImportTarget.UCSB_DATES;
+
+    // act
+    jdbcTemplate.update(
+        target.insertSql(),
+        target.toRow(
+            Map.of(
+                "quarterYYYYQ", "20242",
+                "name", "imported",
+                "localDateTime", "2024-04-01T00:00:00")));
+    List<UCSBDate> inserted = ucsbDateRepository.insertAll(dates(60));
+
+    // assert
+    assertEquals(62, ucsbDateRepository.count());
+    List<Long> ids = new ArrayList<>();
+    ucsbDateRepository.findAll().forEach(date -> ids.add(date.getId()));
+    assertEquals(62, ids.stream().distinct().count());
+    assertTrue(ids.contains(saved.getId()));
+    assertTrue(ids.contains(inserted.get(59).getId()));
+  }
+}
@@ -0,0 +1,198 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "app.bulk.max-items=3")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BulkIT {
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  private List<Map<String, Object>> send(MockHttpServletRequestBuilder request, Object body)
+      throws Exception {
+    return mapper.readValue(
+        send(request, body, status().isOk()),
+        new TypeReference<List<Map<String, Object>>>() {});
+  }
+
+  private String send(MockHttpServletRequestBuilder request, Object body, ResultMatcher expected)
+      throws Exception {
+    return mockMvc
+        .perform(
+            request
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(body)))
+        .andExpect(expected)
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+  }
+
+  private UCSBDate date(long id, String name) {
+    return UCSBDate.builder()
+        .id(id)
+        .quarterYYYYQ("20241")
+        .name(name)
+        .localDateTime(LocalDateTime.of(2024, 1, 8, 0, 0))
+        .build();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dates_are_created_updated_and_deleted_in_bulk() throws Exception {
+    // act
+    List<Map<String, Object>> created =
+        send(post("/api/ucsbdates/bulk"), List.of(date(99, "first"), date(99, "second")));
+    long first = ((Number) created.get(0).get("id")).longValue();
+    long second = ((Number) created.get(1).get("id")).longValue();
+    List<Map<String, Object>> updated =
+        send(put("/api/ucsbdates/bulk"), List.of(date(first, "renamed"), date(12345, "missing")));
+    List<Map<String, Object>> deleted =
+        send(delete("/api/ucsbdates/bulk"), List.of(second, 12345L));
+
+    // assert
+    assertEquals(List.of(BulkResult.CREATED, BulkResult.CREATED), statuses(created));
+    assertEquals(List.of(BulkResult.UPDATED, BulkResult.NOT_FOUND), statuses(updated));
+    assertEquals(List.of(BulkResult.DELETED, BulkResult.NOT_FOUND), statuses(deleted));
+    assertEquals(1, ucsbDateRepository.count());
+    assertEquals("renamed", ucsbDateRepository.findById(first).orElseThrow().getName());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void organizations_are_created_or_replaced_by_org_code() throws Exception {
+    // arrange
+    ucsbOrganizationRepository.save(
+        UCSBOrganization.builder().orgCode("ZPR").orgTranslation("old").build());
+
+    // act
+    List<Map<String, Object>> results =
+        send(
+            post("/api/ucsborganizations/bulk"),
+            List.of(
+                UCSBOrganization.builder().orgCode("ZPR").orgTranslation("new").build(),
+                UCSBOrganization.builder().orgCode("SKY").orgTranslation("sky").build(),
+                UCSBOrganization.builder().orgTranslation("no code").build()));
+
+    // assert
+    assertEquals(
+        List.of(BulkResult.UPDATED, BulkResult.CREATED, BulkResult.INVALID), statuses(results));
+    assertEquals("ZPR", results.get(0).get("id"));
+    assertEquals("SKY", results.get(1).get("id"));
+    assertEquals(
+        "new", ucsbOrganizationRepository.findById("ZPR").orElseThrow().getOrgTranslation());
+    assertEquals(
+        "sky", ucsbOrganizationRepository.findById("SKY").orElseThrow().getOrgTranslation());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void more_than_max_items_is_a_bad_request() throws Exception {
+    mockMvc
+        .perform(
+            delete("/api/ucsbdates/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 2, 3, 4]"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void null_items_are_a_bad_request_listing_their_indexes() throws Exception {
+    // arrange
+    UCSBDate stored = ucsbDateRepository.save(date(0, "stored"));
+    List<UCSBDate> items = new ArrayList<>();
+    items.add(date(stored.getId(), "renamed"));
+    items.add(null);
+    items.add(null);
+
+    // act
+    String inserted = send(post("/api/ucsbdates/bulk"), items, status().isBadRequest());
+    String updated = send(put("/api/ucsbdates/bulk"), items, status().isBadRequest());
+
+    // assert
+    List<Map<String, Object>> expected =
+        List.of(
+            Map.of("index", 1, "status", BulkResult.INVALID, "message", "item is null"),
+            Map.of("index", 2, "status", BulkResult.INVALID, "message", "item is null"));
+    assertEquals(expected, withoutNulls(inserted));
+    assertEquals(expected, withoutNulls(updated));
+    assertEquals(1, ucsbDateRepository.count());
+    assertEquals("stored", ucsbDateRepository.findById(stored.getId()).orElseThrow().getName());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void items_breaking_a_constraint_are_a_conflict_and_none_are_written() throws Exception {
+    // act
+    String response =
+        send(
+            post("/api/ucsbdates/bulk"),
+            List.of(date(0, "fits"), date(0, "x".repeat(300))),
+            status().isConflict());
+
+    // assert
+    Map<String, Object> error =
+        mapper.readValue(response, new TypeReference<Map<String, Object>>() {});
+    assertEquals("BulkConflictException", error.get("type"));
+    assertEquals(0, ucsbDateRepository.count());
+  }
+
+  private List<Map<String, Object>> withoutNulls(String response) throws Exception {
+    List<Map<String, Object>> results =
+        mapper.readValue(response, new TypeReference<List<Map<String, Object>>>() {});
+    results.forEach(result -> result.values().removeIf(Objects::isNull));
+    return results;
+  }
+
+  private List<Object> statuses(List<Map<String, Object>> results) {
+    return results.stream().map(result -> result.get("status")).toList();
+  }
+}
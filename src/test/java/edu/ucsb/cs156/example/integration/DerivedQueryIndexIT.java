@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Checks the schema built by the Liquibase changelogs against the derived queries of every
+ * repository: the first column a derived query filters on must lead an index (or the primary
+ * key), so that the query does not scan the whole table.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class DerivedQueryIndexIT {
+  @Autowired ApplicationContext applicationContext;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired DataSource dataSource;
+
+  @Test
+  public void every_derived_query_filters_on_an_indexed_column() throws Exception {
+    Repositories repositories = new Repositories(applicationContext);
+    SessionFactoryImplementor sessionFactory =
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    List<String> checked = new ArrayList<>();
+    List<String> unindexed = new ArrayList<>();
+
+    try (Connection connection = dataSource.getConnection()) {
+      DatabaseMetaData metaData = connection.getMetaData();
+      for (Class<?> domainType : repositories) {
+        RepositoryInformation information =
+            repositories.getRequiredRepositoryInformation(domainType);
+        AbstractEntityPersister persister =
+            (AbstractEntityPersister)
+                sessionFactory.getMappingMetamodel().getEntityDescriptor(domainType);
+        for (Method method : information.getQueryMethods()) {
+          // fragments such as BatchInsertRepository are implemented by hand, not derived
+          if (method.getDeclaringClass() != information.getRepositoryInterface()
+              || AnnotatedElementUtils.hasAnnotation(method, Query.class)) {
+            continue;
+          }
+          PartTree tree = new PartTree(method.getName(), domainType);
+          List<Part> parts = tree.getParts().toList();
+          if (parts.isEmpty()) {
+            // e.g. streamAllBy, which reads the whole table on purpose
+            continue;
+          }
+          String property = parts.get(0).getProperty().getSegment();
+          String column =
+              property.equals(persister.getIdentifierPropertyName())
+                  ? persister.getIdentifierColumnNames()[0]
+                  : persister.getPropertyColumnNames(property)[0];
+          String table = persister.getTableName();
+          String name =
+              information.getRepositoryInterface().getSimpleName() + "." + method.getName();
+          checked.add(name);
+          if (!leadingColumns(metaData, table).contains(column.toUpperCase())) {
+            unindexed.add("%s filters on %s.%s".formatted(name, table, column));
+          }
+        }
+      }
+    }
+
+    assertTrue(checked.contains("UserRepository.findByEmail"), checked.toString());
+    assertTrue(checked.contains("UCSBDateRepository.findAllByQuarterYYYYQ"), checked.toString());
+    assertEquals(List.of(), unindexed);
+  }
+
+  @Test
+  public void user_emails_are_unique() throws Exception {
+    Set<String> uniqueColumns = new HashSet<>();
+    try (Connection connection = dataSource.getConnection();
+        ResultSet indexes =
+            connection.getMetaData().getIndexInfo(null, null, "USERS", true, false)) {
+      while (indexes.next()) {
+        uniqueColumns.add(indexes.getString("COLUMN_NAME"));
+      }
+    }
+    assertTrue(uniqueColumns.contains("EMAIL"), uniqueColumns.toString());
+  }
+
+  @Test
+  public void job_idempotency_keys_are_unique_per_user() throws Exception {
+    Map<String, List<String>> uniqueIndexes = new TreeMap<>();
+    try (Connection connection = dataSource.getConnection();
+        ResultSet indexes =
+            connection.getMetaData().getIndexInfo(null, null, "JOBS", true, false)) {
+      while (indexes.next()) {
+        uniqueIndexes
+            .computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new ArrayList<>())
+            .add(indexes.getShort("ORDINAL_POSITION") - 1, indexes.getString("COLUMN_NAME"));
+      }
+    }
+    assertTrue(
+        uniqueIndexes.containsValue(List.of("CREATED_BY_ID", "IDEMPOTENCY_KEY")),
+        uniqueIndexes.toString());
+    assertFalse(uniqueIndexes.containsValue(List.of("IDEMPOTENCY_KEY")), uniqueIndexes.toString());
+  }
+
+  private Set<String> leadingColumns(DatabaseMetaData metaData, String table) throws Exception {
+    Set<String> columns = new HashSet<>();
+    try (ResultSet indexes =
+        metaData.getIndexInfo(null, null, table.toUpperCase(), false, false)) {
+      while (indexes.next()) {
+        if (indexes.getShort("ORDINAL_POSITION") == 1) {
+          columns.add(indexes.getString("COLUMN_NAME").toUpperCase());
+        }
+      }
+    }
+    try (ResultSet keys = metaData.getPrimaryKeys(null, null, table.toUpperCase())) {
+      while (keys.next()) {
+        if (keys.getShort("KEY_SEQ") == 1) {
+          columns.add(keys.getString("COLUMN_NAME").toUpperCase());
+        }
+      }
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ExportsIT {
+  @Autowired ArticlesRepository articlesRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  private MvcResult export(String url) throws Exception {
+    MvcResult started =
+        mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+    return mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void articles_are_exported_as_ndjson() throws Exception {
+    // arrange
+    Articles first =
+        articlesRepository.save(
+            Articles.builder()
+                .title("Title")
+                .url("https://example.org")
+                .explanation("Explanation")
+                .email("a@ucsb.edu")
+                .dateAdded(LocalDateTime.of(2024, 1, 8, 0, 0))
+                .build());
+    Articles second = articlesRepository.save(Articles.builder().title("Second").build());
+
+    // act
+    MvcResult response = export("/api/articles/export");
+
+    // assert
+    assertEquals("application/x-ndjson", response.getResponse().getContentType());
+    assertEquals(
+        "attachment; filename=\"articles.ndjson\"",
+        response.getResponse().getHeader("Content-Disposition"));
+    assertEquals(
+        mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void streamed_json_is_the_same_as_all() throws Exception {
+    // arrange
+    for (int i = 0; i < 3; i++) {
+      articlesRepository.save(
+          Articles.builder()
+              .title("Title " + i)
+              .dateAdded(LocalDateTime.of(2024, 1, 8, i, 0))
+              .build());
+    }
+    String all =
+        mockMvc
+            .perform(get("/api/articles/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    // act
+    MvcResult response = export("/api/articles/export?format=json");
+
+    // assert
+    assertEquals("application/json", response.getResponse().getContentType());
+    assertEquals(all, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void organizations_are_exported_as_csv_that_can_be_imported_again() throws Exception {
+    // arrange
+    ucsbOrganizationRepository.save(
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("Zeta Phi Rho, \"UCSB\"")
+            .inactive(false)
+            .build());
+
+    // act
+    MvcResult response = export("/api/ucsborganizations/export?format=CSV");
+
+    // assert
+    assertEquals("text/csv;charset=UTF-8", response.getResponse().getContentType());
+    assertEquals(
+        """
+        orgCode,orgTranslationShort,orgTranslation,inactive
+        ZPR,ZETA PHI RHO,"Zeta Phi Rho, ""UCSB\""",false
+        """,
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void unknown_format_is_a_bad_request() throws Exception {
+    mockMvc
+        .perform(get("/api/articles/export?format=xml"))
+        .andExpect(status().isBadRequest())
+        .andExpect(header().doesNotExist("Content-Disposition"));
+  }
+}
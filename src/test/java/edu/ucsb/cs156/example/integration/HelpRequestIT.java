@@ -9,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -31,6 +32,7 @@ import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -111,4 +113,108 @@ public class HelpRequestIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_put_with_a_stale_if_match_is_rejected() throws Exception {
+                // arrange
+                HelpRequest saved = helpRequestRepository.save(HelpRequest.builder()
+                                .requesterEmail("first@ucsb.edu")
+                                .build());
+                String url = "/api/helprequests?id=" + saved.getId();
+                String etag = mockMvc.perform(get(url))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+                mockMvc.perform(put(url)
+                                .with(csrf())
+                                .header("If-Match", etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(
+                                                HelpRequest.builder().requesterEmail("second@ucsb.edu").build())))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"1\""));
+                mockMvc.perform(put(url)
+                                .with(csrf())
+                                .header("If-Match", etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(
+                                                HelpRequest.builder().requesterEmail("third@ucsb.edu").build())))
+                                .andExpect(status().isPreconditionFailed());
+                mockMvc.perform(delete(url).with(csrf()).header("If-Match", etag))
+                                .andExpect(status().isPreconditionFailed());
+                HelpRequest afterPuts = helpRequestRepository.findById(saved.getId()).get();
+                mockMvc.perform(delete(url).with(csrf()).header("If-Match", "\"1\""))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals("\"0\"", etag);
+                assertEquals("second@ucsb.edu", afterPuts.getRequesterEmail());
+                assertEquals(1L, afterPuts.getVersion());
+                assertEquals(0, helpRequestRepository.count());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_put_without_if_match_returns_the_etag_of_the_version_it_wrote()
+                        throws Exception {
+                // arrange
+                HelpRequest saved = helpRequestRepository.save(HelpRequest.builder()
+                                .requesterEmail("first@ucsb.edu")
+                                .build());
+                String url = "/api/helprequests?id=" + saved.getId();
+                String body = mapper.writeValueAsString(
+                                HelpRequest.builder().requesterEmail("second@ucsb.edu").build());
+
+                // act
+                String etag = mockMvc.perform(put(url)
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+                mockMvc.perform(put(url)
+                                .with(csrf())
+                                .header("If-Match", "W/" + etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                                .andExpect(status().isPreconditionFailed());
+                mockMvc.perform(put(url)
+                                .with(csrf())
+                                .header("If-Match", etag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"2\""));
+
+                // assert
+                assertEquals("\"1\"", etag);
+                assertEquals(2L, helpRequestRepository.findById(saved.getId()).get().getVersion());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_bulk_update_replaces_any_version() throws Exception {
+                // arrange
+                HelpRequest saved = helpRequestRepository.save(HelpRequest.builder()
+                                .requesterEmail("first@ucsb.edu")
+                                .build());
+                helpRequestRepository.updateById(saved.getId(), saved);
+
+                // act
+                mockMvc.perform(put("/api/helprequests/bulk")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(List.of(HelpRequest.builder()
+                                                .id(saved.getId())
+                                                .requesterEmail("bulk@ucsb.edu")
+                                                .build()))))
+                                .andExpect(status().isOk());
+
+                // assert
+                HelpRequest updated = helpRequestRepository.findById(saved.getId()).get();
+                assertEquals("bulk@ucsb.edu", updated.getRequesterEmail());
+                assertEquals(2L, updated.getVersion());
+        }
 }
@@ -0,0 +1,169 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "app.imports.batch-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ImportsIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  private Job upload(String target, String filename, String content) throws Exception {
+    MockMultipartFile file =
+        new MockMultipartFile("file", filename, null, content.getBytes(StandardCharsets.UTF_8));
+    MvcResult response =
+        mockMvc
+            .perform(multipart("/api/imports/" + target).file(file).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job job = mapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    for (int i = 0; i < 100; i++) {
+      job = jobsRepository.findById(job.getId()).orElseThrow();
+      if (!List.of("queued", "running").contains(job.getStatus())) {
+        break;
+      }
+      Thread.sleep(100);
+    }
+    return job;
+  }
+
+  private List<String> logLines(Job job) {
+    return jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(job.getId()).stream()
+        .map(JobLogLine::getLine)
+        .toList();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void csv_is_imported_in_batches_skipping_invalid_and_duplicate_records()
+      throws Exception {
+    // arrange
+    String csv =
+        """
+        orgCode,orgTranslationShort,orgTranslation,inactive
+        ZPR,ZETA PHI RHO,"Zeta Phi Rho, UCSB",false
+        SKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,true
+        ZPR,DUPLICATE,DUPLICATE,false
+        KRC,KOREAN RADIO CL,KOREAN RADIO CLUB,maybe
+        OSLI,STUDENT LIFE,OFFICE OF STUDENT LIFE,false
+        """;
+
+    // act
+    Job job = upload("ucsborganizations", "orgs.csv", csv);
+
+    // assert
+    assertEquals("complete", job.getStatus());
+    assertEquals(job.getProgressTotal(), job.getProgressDone());
+    List<UCSBOrganization> orgs = ucsbOrganizationRepository.findAll();
+    assertEquals(
+        List.of("OSLI", "SKY", "ZPR"),
+        orgs.stream().map(UCSBOrganization::getOrgCode).sorted().toList());
+    assertEquals(
+        "Zeta Phi Rho, UCSB",
+        ucsbOrganizationRepository.findById("ZPR").orElseThrow().getOrgTranslation());
+
+    List<String> lines = logLines(job);
+    assertEquals("Skipped record 4: inactive must be true or false", lines.get(1));
+    // the database's reason for rejecting the duplicate may run over several lines
+    assertTrue(lines.get(2).startsWith("Skipped record 3: "), lines.get(2));
+    assertEquals("Imported 3 rows; skipped 2 records", lines.get(lines.size() - 1));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void ndjson_is_imported() throws Exception {
+    // arrange
+    String ndjson =
+        """
+        {"quarterYYYYQ":"20241","name":"firstDayOfClasses","localDateTime":"2024-01-08T00:00:00"}
+        {"quarterYYYYQ":"2024","name":"bad","localDateTime":"2024-01-08T00:00:00"}
+        {"quarterYYYYQ":"20243","name":"truncated",
+        {"quarterYYYYQ":"20242","name":"lastDayOfClasses","localDateTime":"2024-06-07T00:00:00"}
+        """;
+
+    // act
+    Job job = upload("ucsbdates", "dates.ndjson", ndjson);
+
+    // assert
+    assertEquals("complete", job.getStatus());
+    List<UCSBDate> dates =
+        StreamSupport.stream(ucsbDateRepository.findAll().spliterator(), false).toList();
+    assertEquals(2, dates.size());
+    assertEquals(LocalDateTime.of(2024, 1, 8, 0, 0), dates.get(0).getLocalDateTime());
+    assertEquals(
+        List.of(
+            "Importing %d bytes of NDJSON into UCSB_DATES".formatted(ndjson.length()),
+            "Skipped record 2: quarterYYYYQ must be 5 digits, e.g. 20241",
+            "Imported 2 rows; skipped 2 records"),
+        logLines(job).stream().filter(line -> !line.startsWith("Skipped record 3: ")).toList());
+    assertTrue(
+        logLines(job).get(2).startsWith("Skipped record 3: Line 3 is not valid JSON: "),
+        logLines(job).toString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void unknown_target_is_not_found() throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", "x.csv", null, "a\n1\n".getBytes());
+    mockMvc
+        .perform(multipart("/api/imports/users").file(file).with(csrf()))
+        .andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_import() throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", "x.csv", null, "a\n1\n".getBytes());
+    mockMvc
+        .perform(multipart("/api/imports/ucsbdates").file(file).with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+}
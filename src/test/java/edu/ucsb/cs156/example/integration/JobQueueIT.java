@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "app.jobs.queue.enabled=true",
+      "app.jobs.queue.poll-interval-ms=100",
+      "app.jobs.queue.heartbeat-interval-ms=100"
+    })
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobQueueIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  private Job awaitStatus(long id, String expected) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      Job job = jobsRepository.findById(id).orElseThrow();
+      if (expected.equals(job.getStatus())) {
+        return job;
+      }
+      Thread.sleep(100);
+    }
+    return jobsRepository.findById(id).orElseThrow();
+  }
+
+  private List<String> lines(long jobId) {
+    return jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId).stream()
+        .map(JobLogLine::getLine)
+        .toList();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void launched_test_job_is_queued_then_claimed_and_run() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job queued = mapper.readValue(response.getResponse().getContentAsString(), Job.class);
+
+    // assert
+    assertEquals("queued", queued.getStatus());
+    Job done = awaitStatus(queued.getId(), "complete");
+    assertEquals("complete", done.getStatus());
+    assertEquals(1, done.getAttempts());
+    assertEquals(
+        List.of("Hello World! from test job!", "Goodbye from test job!"), lines(done.getId()));
+  }
+
+  @Test
+  public void job_with_expired_lease_is_reclaimed_and_continues_its_log() throws Exception {
+    // arrange: a job left running by a worker that died after writing one line
+    Job orphan =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .jobType(TestJob.class.getName())
+                .payload("{\"fail\":false,\"sleepMs\":0}")
+                .claimedBy("dead-worker")
+                .leaseExpiresAt(ZonedDateTime.now().minusMinutes(5))
+                .attempts(1)
+                .build());
+    jobLogLinesRepository.save(
+        JobLogLine.builder().jobId(orphan.getId()).seq(0).line("Hello World! from test job!").build());
+
+    // act
+    Job done = awaitStatus(orphan.getId(), "complete");
+
+    // assert
+    assertEquals("complete", done.getStatus());
+    assertEquals(2, done.getAttempts());
+    assertNotEquals("dead-worker", done.getClaimedBy());
+    assertEquals(
+        List.of(
+            "Hello World! from test job!",
+            "Retrying job (attempt 2)",
+            "Hello World! from test job!",
+            "Goodbye from test job!"),
+        lines(done.getId()));
+  }
+
+  @Test
+  public void job_out_of_attempts_is_failed_instead_of_reclaimed() throws Exception {
+    // arrange
+    Job orphan =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .jobType(TestJob.class.getName())
+                .payload("{\"fail\":false,\"sleepMs\":0}")
+                .claimedBy("dead-worker")
+                .leaseExpiresAt(ZonedDateTime.now().minusMinutes(5))
+                .attempts(3)
+                .build());
+
+    // act
+    Job failed = awaitStatus(orphan.getId(), "error");
+
+    // assert
+    assertEquals("error", failed.getStatus());
+    assertEquals(3, failed.getAttempts());
+  }
+}
@@ -0,0 +1,649 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.RecurringJob;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.RecurringJobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobsIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired CompressedJobLogsRepository compressedJobLogsRepository;
+
+  @Autowired JobRetentionService jobRetentionService;
+
+  @Autowired JobService jobService;
+
+  @Autowired UserRepository userRepository;
+
+  @Autowired RecurringJobsRepository recurringJobsRepository;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  private Job saveJob(String status, int lines) {
+    Job job = jobsRepository.save(Job.builder().status(status).build());
+    for (int seq = 0; seq < lines; seq++) {
+      jobLogLinesRepository.save(
+          JobLogLine.builder().jobId(job.getId()).seq(seq).line("line " + seq).build());
+    }
+    return job;
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void admin_can_page_through_job_summaries() throws Exception {
+    // arrange
+    Job first = saveJob("complete", 3);
+    Job second = saveJob("error", 1);
+    Job third = saveJob("complete", 0);
+    assertNotNull(first.getCreatedAt());
+
+    // act
+    MvcResult page1 =
+        mockMvc.perform(get("/api/jobs/summary?limit=2")).andExpect(status().isOk()).andReturn();
+    Map<String, Object> json1 =
+        mapper.readValue(page1.getResponse().getContentAsString(), Map.class);
+    MvcResult page2 =
+        mockMvc
+            .perform(get("/api/jobs/summary?limit=2&after=" + json1.get("next")))
+            .andExpect(status().isOk())
+            .andReturn();
+    Map<String, Object> json2 =
+        mapper.readValue(page2.getResponse().getContentAsString(), Map.class);
+
+    // assert
+    List<Map<String, Object>> items1 = (List<Map<String, Object>>) json1.get("items");
+    assertEquals(2, items1.size());
+    assertEquals((int) third.getId(), items1.get(0).get("id"));
+    assertEquals(0, items1.get(0).get("logLines"));
+    assertEquals((int) second.getId(), items1.get(1).get("id"));
+    assertEquals(Long.toString(second.getId()), json1.get("next"));
+
+    List<Map<String, Object>> items2 = (List<Map<String, Object>>) json2.get("items");
+    assertEquals(1, items2.size());
+    assertEquals((int) first.getId(), items2.get(0).get("id"));
+    assertEquals(3, items2.get(0).get("logLines"));
+    assertEquals("complete", items2.get(0).get("status"));
+    assertNull(items2.get(0).get("log"));
+    assertNull(json2.get("next"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void admin_can_filter_job_summaries_by_status_and_date() throws Exception {
+    // arrange
+    saveJob("complete", 0);
+    Job failed = saveJob("error", 0);
+
+    // act
+    MvcResult byStatus =
+        mockMvc
+            .perform(get("/api/jobs/summary?status=error"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult byDate =
+        mockMvc
+            .perform(get("/api/jobs/summary?createdAfter=2100-01-01T00:00:00Z"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    List<Map<String, Object>> statusItems =
+        (List<Map<String, Object>>)
+            mapper.readValue(byStatus.getResponse().getContentAsString(), Map.class).get("items");
+    assertEquals(1, statusItems.size());
+    assertEquals((int) failed.getId(), statusItems.get(0).get("id"));
+    List<Map<String, Object>> dateItems =
+        (List<Map<String, Object>>)
+            mapper.readValue(byDate.getResponse().getContentAsString(), Map.class).get("items");
+    assertEquals(0, dateItems.size());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_read_part_of_a_job_log() throws Exception {
+    // arrange
+    Job job = saveJob("complete", 10);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}?tail=2", job.getId()))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 8\nline 9"));
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", job.getId()).header("Range", "lines=2-3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 2-3/10"))
+        .andExpect(content().string("line 2\nline 3"));
+  }
+
+  private void awaitSize(List<String> list, int size) throws InterruptedException {
+    for (int i = 0; i < 100 && list.size() < size; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(size, list.size(), list.toString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void jobs_past_the_core_size_run_at_once_and_waiting_jobs_start_by_priority()
+      throws Exception {
+    // arrange: max-size (4) jobs that block, more than the executor used to keep running
+    List<String> started = Collections.synchronizedList(new ArrayList<>());
+    List<CountDownLatch> releases = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String name = "busy " + i;
+      CountDownLatch release = new CountDownLatch(1);
+      releases.add(release);
+      jobService.runAsJob(
+          context -> {
+            started.add(name);
+            release.await();
+          });
+    }
+    awaitSize(started, 4);
+
+    // act: two more jobs wait in the scheduler, then share the one slot that frees up
+    jobService.runAsJob(context -> started.add("low"), null, 0);
+    jobService.runAsJob(context -> started.add("high"), null, 5);
+    Thread.sleep(200);
+    assertEquals(4, started.size(), started.toString());
+    releases.get(0).countDown();
+    awaitSize(started, 6);
+    releases.forEach(CountDownLatch::countDown);
+
+    // assert
+    assertEquals(List.of("high", "low"), started.subList(4, 6));
+  }
+
+  @Test
+  public void jobs_run_in_process_by_an_earlier_run_are_failed() {
+    // arrange
+    Job waiting = saveJob("queued", 0);
+    Job running = saveJob("running", 0);
+    Job done = saveJob("complete", 0);
+    Job durable =
+        jobsRepository.save(
+            Job.builder().status("queued").jobType(TestJob.class.getName()).build());
+
+    // act
+    int failed = jobsRepository.failOrphaned(ZonedDateTime.now().plusMinutes(1));
+
+    // assert
+    assertEquals(2, failed);
+    assertEquals("error", jobsRepository.findById(waiting.getId()).orElseThrow().getStatus());
+    assertEquals("error", jobsRepository.findById(running.getId()).orElseThrow().getStatus());
+    assertEquals("complete", jobsRepository.findById(done.getId()).orElseThrow().getStatus());
+    assertEquals("queued", jobsRepository.findById(durable.getId()).orElseThrow().getStatus());
+    assertEquals(0, jobsRepository.failOrphaned(ZonedDateTime.now().minusMinutes(1)));
+  }
+
+  private Job awaitStatus(long id, String expected) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      Job job = jobsRepository.findById(id).orElseThrow();
+      if (expected.equals(job.getStatus())) {
+        return job;
+      }
+      Thread.sleep(100);
+    }
+    return jobsRepository.findById(id).orElseThrow();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_cancel_a_running_job() throws Exception {
+    // arrange
+    MvcResult launched =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=60000").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job job = mapper.readValue(launched.getResponse().getContentAsString(), Job.class);
+    awaitLines(job.getId(), 1);
+
+    // act
+    mockMvc
+        .perform(post("/api/jobs/cancel?id=" + job.getId()).with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals("cancelled", awaitStatus(job.getId(), "cancelled").getStatus());
+    assertEquals(
+        List.of("Hello World! from test job!", "Job cancelled"),
+        jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(job.getId()).stream()
+            .map(JobLogLine::getLine)
+            .toList());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void job_running_past_its_timeout_is_stopped() throws Exception {
+    // act
+    MvcResult launched =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=60000&timeoutMs=200")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job job = mapper.readValue(launched.getResponse().getContentAsString(), Job.class);
+
+    // assert
+    assertEquals("timed_out", awaitStatus(job.getId(), "timed_out").getStatus());
+  }
+
+  private void awaitLines(long jobId, int lines) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      if (jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId).size() >= lines) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void retention_sweep_compacts_then_deletes_old_finished_jobs() throws Exception {
+    // arrange
+    Job finished = saveJob("complete", 3);
+    Job running = saveJob("running", 2);
+    ZonedDateTime now = ZonedDateTime.now();
+
+    // act: a week and a bit later, the finished job's log is compacted
+    jobRetentionService.sweep(now.plusDays(8));
+
+    // assert
+    assertEquals(List.of(), jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(finished.getId()));
+    assertEquals(2, jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(running.getId()).size());
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", finished.getId()))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 0\nline 1\nline 2"));
+    MvcResult summary =
+        mockMvc.perform(get("/api/jobs/summary")).andExpect(status().isOk()).andReturn();
+    List<Map<String, Object>> items =
+        (List<Map<String, Object>>)
+            mapper.readValue(summary.getResponse().getContentAsString(), Map.class).get("items");
+    assertEquals(List.of(2, 3), items.stream().map(item -> item.get("logLines")).toList());
+
+    // act: a month and a bit later, it is deleted
+    jobRetentionService.sweep(now.plusDays(31));
+
+    // assert
+    assertEquals(List.of(running.getId()), jobIds());
+  }
+
+  private List<Long> jobIds() {
+    List<Long> ids = new ArrayList<>();
+    jobsRepository.findAll().forEach(job -> ids.add(job.getId()));
+    return ids;
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void large_logs_are_compressed_when_compacted() throws Exception {
+    // arrange: well over the 4096 byte threshold
+    Job job = saveJob("complete", 1000);
+
+    // act
+    jobRetentionService.sweep(ZonedDateTime.now().plusDays(8));
+
+    // assert
+    CompressedJobLog compressed = compressedJobLogsRepository.findById(job.getId()).orElseThrow();
+    assertEquals(1000, compressed.getLineCount());
+    assertNull(jobsRepository.findById(job.getId()).orElseThrow().getLog());
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", job.getId()).param("offset", "998"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Log-Total-Lines", "1000"))
+        .andExpect(content().string("line 998\nline 999"));
+    MvcResult all =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}", job.getId()))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertEquals(1000, all.getResponse().getContentAsString().split("\n").length);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void job_summary_reads_the_line_count_stored_when_the_job_finished() throws Exception {
+    // arrange: the stored count is used as is, rather than counting the lines
+    Job finished = jobsRepository.save(Job.builder().status("complete").logLines(7L).build());
+    Job running = saveJob("running", 2);
+
+    // act
+    MvcResult summary =
+        mockMvc.perform(get("/api/jobs/summary")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    List<Map<String, Object>> items =
+        (List<Map<String, Object>>)
+            mapper.readValue(summary.getResponse().getContentAsString(), Map.class).get("items");
+    assertEquals(
+        List.of((int) running.getId(), (int) finished.getId()),
+        items.stream().map(item -> item.get("id")).toList());
+    assertEquals(List.of(2, 7), items.stream().map(item -> item.get("logLines")).toList());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void tail_of_compressed_log_counts_lines_within_messages() throws Exception {
+    // arrange: a 1000 line log whose last message is a three line stack trace
+    Job job = saveJob("complete", 999);
+    jobLogLinesRepository.save(
+        JobLogLine.builder().jobId(job.getId()).seq(999).line("boom\n  at a\n  at b").build());
+
+    // act
+    jobRetentionService.sweep(ZonedDateTime.now().plusDays(8));
+
+    // assert
+    assertEquals(
+        1002, compressedJobLogsRepository.findById(job.getId()).orElseThrow().getLineCount());
+    assertEquals(1002L, jobsRepository.findById(job.getId()).orElseThrow().getLogLines());
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", job.getId()).param("tail", "3"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Log-Total-Lines", "1002"))
+        .andExpect(content().string("boom\n  at a\n  at b"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void log_lines_are_numbered_the_same_before_and_after_compaction() throws Exception {
+    // arrange: a job logs a three line stack trace as one message
+    Job job = jobsRepository.save(Job.builder().status("running").build());
+    JobContext context = new JobContext(jobLogLinesRepository, job);
+    context.log("start");
+    context.log("boom\n  at a\n  at b");
+    context.log("done");
+    job.setStatus("complete");
+    job.setLogLines(context.getNextSeq());
+    jobsRepository.save(job);
+
+    // act & assert
+    expectStackTraceAsLines1To3(job);
+    jobRetentionService.sweep(ZonedDateTime.now().plusDays(8));
+    assertEquals(List.of(), jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(job.getId()));
+    expectStackTraceAsLines1To3(job);
+    assertEquals(5L, jobsRepository.findById(job.getId()).orElseThrow().getLogLines());
+  }
+
+  private void expectStackTraceAsLines1To3(Job job) throws Exception {
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", job.getId()).header("Range", "lines=1-3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 1-3/5"))
+        .andExpect(content().string("boom\n  at a\n  at b"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void job_summary_shows_progress_reported_by_job() throws Exception {
+    // arrange
+    MvcResult launched =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job job = mapper.readValue(launched.getResponse().getContentAsString(), Job.class);
+    awaitStatus(job.getId(), "complete");
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/summary")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> summary =
+        ((List<Map<String, Object>>)
+                mapper.readValue(response.getResponse().getContentAsString(), Map.class)
+                    .get("items"))
+            .get(0);
+    assertEquals(1, summary.get("progressDone"));
+    assertEquals(1, summary.get("progressTotal"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void admin_can_read_job_metrics_from_actuator() throws Exception {
+    // arrange
+    MvcResult launched =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job job = mapper.readValue(launched.getResponse().getContentAsString(), Job.class);
+    awaitStatus(job.getId(), "complete");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/actuator/metrics/jobs.duration")
+                    .param("tag", "job:TestJob")
+                    .param("tag", "status:complete"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> metric =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    Map<String, Object> count = ((List<Map<String, Object>>) metric.get("measurements")).get(0);
+    assertEquals("COUNT", count.get("statistic"));
+    assertEquals(1.0, count.get("value"));
+    mockMvc.perform(get("/actuator/metrics/jobs.queued")).andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/metrics/jobs.running")).andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void only_admins_can_read_actuator_metrics() throws Exception {
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+  }
+
+  private Job queued(User user, int priority) {
+    return Job.builder()
+        .createdBy(user)
+        .status("queued")
+        .priority(priority)
+        .jobType(TestJob.class.getName())
+        .build();
+  }
+
+  @Test
+  public void claimable_jobs_come_by_priority_then_fairly_across_users() throws Exception {
+    // arrange: alice already has a job running; bob has none
+    User alice = userRepository.save(User.builder().email("alice@example.org").build());
+    User bob = userRepository.save(User.builder().email("bob@example.org").build());
+    ZonedDateTime now = ZonedDateTime.now();
+    jobsRepository.save(
+        Job.builder()
+            .createdBy(alice)
+            .status("running")
+            .leaseExpiresAt(now.plusMinutes(5))
+            .build());
+    Job aliceLow = jobsRepository.save(queued(alice, 0));
+    Job aliceHigh = jobsRepository.save(queued(alice, 5));
+    Job bobLow = jobsRepository.save(queued(bob, 0));
+    // waiting in the JobScheduler of the instance that launched it, so not for the queue
+    jobsRepository.save(Job.builder().createdBy(bob).status("queued").priority(9).build());
+
+    // act
+    List<Long> uncapped = jobsRepository.lockClaimableIds(now, 3, 0, 10);
+    List<Long> capped = jobsRepository.lockClaimableIds(now, 3, 1, 10);
+
+    // assert
+    assertEquals(List.of(aliceHigh.getId(), bobLow.getId(), aliceLow.getId()), uncapped);
+    assertEquals(List.of(bobLow.getId()), capped);
+  }
+
+  @Test
+  public void recurring_run_is_claimed_once_and_not_while_the_last_run_is_going()
+      throws Exception {
+    // arrange
+    recurringJobsRepository.save(RecurringJob.builder().name("rollup").build());
+    ZonedDateTime firedAt = ZonedDateTime.now().withNano(0);
+    ZonedDateTime stale = firedAt.minusDays(1);
+
+    // act & assert: a second instance firing the same run loses
+    ZonedDateTime sameRun = firedAt.minusMinutes(5);
+    assertEquals(1, recurringJobsRepository.claimRun("rollup", firedAt, sameRun, stale));
+    assertEquals(0, recurringJobsRepository.claimRun("rollup", firedAt, sameRun, stale));
+
+    // the next run is skipped while the last one's job is running, then claimed
+    Job last = jobsRepository.save(Job.builder().status("running").build());
+    recurringJobsRepository.recordJob("rollup", last.getId());
+    ZonedDateTime next = firedAt.plusMinutes(10);
+    assertEquals(0, recurringJobsRepository.claimRun("rollup", next, next.minusMinutes(5), stale));
+    last.setStatus("complete");
+    jobsRepository.save(last);
+    assertEquals(1, recurringJobsRepository.claimRun("rollup", next, next.minusMinutes(5), stale));
+    assertEquals(
+        next.toInstant(),
+        recurringJobsRepository.findById("rollup").orElseThrow().getLastFiredAt().toInstant());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void relaunch_with_same_idempotency_key_returns_the_same_job() throws Exception {
+    // act
+    String launch = "/api/jobs/launch/testjob?fail=false&sleepMs=60000";
+    MvcResult first =
+        mockMvc
+            .perform(post(launch).header("Idempotency-Key", "nightly-1").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult again =
+        mockMvc
+            .perform(post(launch).header("Idempotency-Key", "nightly-1").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    mockMvc
+        .perform(post(launch + "&priority=3").header("Idempotency-Key", "nightly-1").with(csrf()))
+        .andExpect(status().isConflict());
+
+    // assert
+    Job firstJob = mapper.readValue(first.getResponse().getContentAsString(), Job.class);
+    Job againJob = mapper.readValue(again.getResponse().getContentAsString(), Job.class);
+    assertEquals(firstJob.getId(), againJob.getId());
+    assertEquals(1, jobsRepository.count());
+
+    // once the job has finished, the key launches a new job
+    mockMvc.perform(post("/api/jobs/cancel?id=" + firstJob.getId()).with(csrf()));
+    awaitStatus(firstJob.getId(), "cancelled");
+    MvcResult relaunch =
+        mockMvc
+            .perform(post(launch).header("Idempotency-Key", "nightly-1").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    Job relaunched = mapper.readValue(relaunch.getResponse().getContentAsString(), Job.class);
+    assertEquals(2, jobsRepository.count());
+    assertEquals("nightly-1", relaunched.getIdempotencyKey());
+    mockMvc.perform(post("/api/jobs/cancel?id=" + relaunched.getId()).with(csrf()));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_bulk_delete_finished_jobs_then_unfinished_ones() throws Exception {
+    // arrange
+    Job failed = saveJob("error", 2);
+    saveJob("error", 0);
+    Job done = saveJob("complete", 3);
+    Job running = saveJob("running", 1);
+    compressedJobLogsRepository.save(
+        CompressedJobLog.builder().jobId(done.getId()).lineCount(0).data(new byte[0]).build());
+
+    // act & assert
+    mockMvc
+        .perform(delete("/api/jobs/all?status=running").with(csrf()))
+        .andExpect(status().isBadRequest());
+    assertEquals(4, jobsRepository.count());
+
+    mockMvc
+        .perform(delete("/api/jobs/all?status=error").with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"message\":\"2 jobs deleted\"}"));
+    assertEquals(List.of(done.getId(), running.getId()), ids(jobsRepository.findAll()));
+    assertEquals(List.of(), jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(failed.getId()));
+
+    mockMvc
+        .perform(delete("/api/jobs/all").with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"message\":\"1 jobs deleted\"}"));
+    assertEquals(List.of(running.getId()), ids(jobsRepository.findAll()));
+    assertEquals(1, jobLogLinesRepository.count());
+    assertEquals(0, compressedJobLogsRepository.count());
+
+    mockMvc
+        .perform(delete("/api/jobs/all?includeUnfinished=true").with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"message\":\"1 jobs deleted\"}"));
+    assertEquals(0, jobsRepository.count());
+    assertEquals(0, jobLogLinesRepository.count());
+  }
+
+  private static List<Long> ids(Iterable<Job> jobs) {
+    List<Long> ids = new ArrayList<>();
+    jobs.forEach(job -> ids.add(job.getId()));
+    return ids;
+  }
+}
@@ -9,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -99,4 +100,48 @@ public class RestaurantIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_edit_and_delete_a_restaurant() throws Exception {
+                // arrange
+
+                Restaurant saved = restaurantRepository.save(Restaurant.builder()
+                                .name("Taco Bell")
+                                .description("Mexican")
+                                .build());
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+
+                // act
+                mockMvc.perform(
+                                put("/api/restaurants?id=" + saved.getId())
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                Restaurant afterEdit = restaurantRepository.findById(saved.getId()).get();
+                mockMvc.perform(delete("/api/restaurants?id=" + saved.getId()).with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals("Freebirds", afterEdit.getName());
+                assertEquals("Burritos", afterEdit.getDescription());
+                assertEquals(0, restaurantRepository.count());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void editing_or_deleting_a_missing_restaurant_is_not_found() throws Exception {
+                mockMvc.perform(
+                                put("/api/restaurants?id=12345")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(Restaurant.builder().name("x").build()))
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound());
+                mockMvc.perform(delete("/api/restaurants?id=12345").with(csrf()))
+                                .andExpect(status().isNotFound());
+        }
 }
@@ -4,9 +4,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobLogPage;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogCompression;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +24,10 @@ public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CompressedJobLogsRepository compressedJobLogsRepository;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -62,4 +74,153 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  void test_getJobLogs_reassembles_log_lines_in_order() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).line("line one").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).line("line two").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
+  @Test
+  void test_getJobLogLines_reads_only_requested_range() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(jobId))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(jobId).seq(99).build()));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqBetweenOrderBySeqAsc(jobId, 97L, 99L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().seq(97).line("a").build(),
+                JobLogLine.builder().seq(98).line("b").build(),
+                JobLogLine.builder().seq(99).line("c").build()));
+
+    // Act
+    JobLogPage page = jobService.getJobLogLines(jobId, -3, 3);
+
+    // Assert
+    assertEquals(97L, page.getOffset());
+    assertEquals(100L, page.getTotal());
+    assertEquals(List.of("a", "b", "c"), page.getLines());
+    verify(jobRepository, never()).findById(any());
+  }
+
+  @Test
+  void test_getJobLogLines_past_end_does_not_query_lines() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(jobId))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(jobId).seq(1).build()));
+
+    // Act
+    JobLogPage page = jobService.getJobLogLines(jobId, 5, 10);
+
+    // Assert
+    assertEquals(2L, page.getTotal());
+    assertEquals(List.of(), page.getLines());
+    verify(jobLogLinesRepository, never())
+        .findAllByJobIdAndSeqBetweenOrderBySeqAsc(anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_getJobLogLines_splits_legacy_log() {
+    // Arrange
+    Long jobId = 6L;
+    Job job = Job.builder().id(jobId).log("one\ntwo\nthree").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+
+    // Act
+    JobLogPage page = jobService.getJobLogLines(jobId, 1, 10);
+    JobLogPage tail = jobService.getJobLogLines(jobId, -10, 10);
+
+    // Assert
+    assertEquals(1L, page.getOffset());
+    assertEquals(3L, page.getTotal());
+    assertEquals(List.of("two", "three"), page.getLines());
+    assertEquals(0L, tail.getOffset());
+    assertEquals(List.of("one", "two", "three"), tail.getLines());
+  }
+
+  @Test
+  void test_getJobLogLines_legacy_job_without_log_is_empty() {
+    // Arrange
+    Long jobId = 7L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+
+    // Act
+    JobLogPage page = jobService.getJobLogLines(jobId, 0, 10);
+
+    // Assert
+    assertEquals(0L, page.getTotal());
+    assertEquals(List.of(), page.getLines());
+  }
+
+  @Test
+  void test_getJobLogLines_job_not_found() {
+    // Arrange
+    when(jobRepository.findById(8L)).thenReturn(Optional.empty());
+
+    // Act & Assert
+    assertThrows(EntityNotFoundException.class, () -> jobService.getJobLogLines(8L, 0, 10));
+  }
+
+  @Test
+  void test_getJobLogs_with_compressed_log() {
+    // Arrange
+    Long jobId = 4L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(4L).build()));
+    when(compressedJobLogsRepository.findById(jobId))
+        .thenReturn(
+            Optional.of(
+                CompressedJobLog.builder()
+                    .jobId(4L)
+                    .lineCount(2)
+                    .data(JobLogCompression.compress(List.of("first", "second")))
+                    .build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first\nsecond", result);
+  }
+
+  @Test
+  void test_getJobLogLines_from_compressed_log() {
+    // Arrange
+    Long jobId = 4L;
+    when(compressedJobLogsRepository.findById(jobId))
+        .thenReturn(
+            Optional.of(
+                CompressedJobLog.builder()
+                    .jobId(4L)
+                    .lineCount(4)
+                    .data(JobLogCompression.compress(List.of("a", "b", "c", "d")))
+                    .build()));
+
+    // Act
+    JobLogPage middle = jobService.getJobLogLines(jobId, 1, 2);
+    JobLogPage tail = jobService.getJobLogLines(jobId, -1, 10);
+    JobLogPage past = jobService.getJobLogLines(jobId, 9, 10);
+
+    // Assert
+    assertEquals(List.of("b", "c"), middle.getLines());
+    assertEquals(4, middle.getTotal());
+    assertEquals(List.of("d"), tail.getLines());
+    assertEquals(3, tail.getOffset());
+    assertEquals(List.of(), past.getLines());
+    verify(jobRepository, never()).findById(jobId);
+  }
 }
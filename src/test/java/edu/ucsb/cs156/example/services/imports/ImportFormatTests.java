@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ImportFormatTests {
+
+  private List<Map<String, String>> readAll(ImportFormat format, String text) {
+    List<Map<String, String>> records = new ArrayList<>();
+    format.records(new StringReader(text)).forEachRemaining(records::add);
+    return records;
+  }
+
+  @Test
+  void csv_records_are_keyed_by_header() {
+    // Act
+    List<Map<String, String>> records =
+        readAll(ImportFormat.CSV, "orgCode,inactive\r\nZPR,false\r\nSKY,true\r\n");
+
+    // Assert
+    assertEquals(
+        List.of(
+            Map.of("orgCode", "ZPR", "inactive", "false"),
+            Map.of("orgCode", "SKY", "inactive", "true")),
+        records);
+  }
+
+  @Test
+  void csv_quoted_fields_may_hold_commas_quotes_and_newlines() {
+    // Act
+    List<Map<String, String>> records =
+        readAll(ImportFormat.CSV, "name,station\n\"Pasta, \"\"fresh\"\"\",\"Line 1\nLine 2\"");
+
+    // Assert
+    assertEquals(
+        List.of(Map.of("name", "Pasta, \"fresh\"", "station", "Line 1\nLine 2")), records);
+  }
+
+  @Test
+  void csv_row_with_wrong_number_of_fields_is_rejected_and_reading_continues() {
+    // Arrange
+    Iterator<Map<String, String>> records =
+        ImportFormat.CSV.records(new StringReader("a,b\n1\n2,3\n"));
+
+    // Act & Assert
+    assertThrows(IllegalArgumentException.class, records::next);
+    assertEquals(Map.of("a", "2", "b", "3"), records.next());
+    assertFalse(records.hasNext());
+  }
+
+  @Test
+  void csv_without_header_or_with_unterminated_quote_is_rejected() {
+    assertThrows(
+        IllegalArgumentException.class, () -> ImportFormat.CSV.records(new StringReader("")));
+    Iterator<Map<String, String>> records =
+        ImportFormat.CSV.records(new StringReader("a\n\"open"));
+    assertThrows(IllegalArgumentException.class, records::next);
+  }
+
+  @Test
+  void ndjson_values_are_read_as_text() {
+    // Act
+    List<Map<String, String>> records =
+        readAll(
+            ImportFormat.NDJSON,
+            """
+            {"orgCode":"ZPR","inactive":false,"orgTranslation":null}
+            {"orgCode":"SKY"}
+            """);
+
+    // Assert
+    assertEquals(2, records.size());
+    assertEquals("ZPR", records.get(0).get("orgCode"));
+    assertEquals("false", records.get(0).get("inactive"));
+    assertNull(records.get(0).get("orgTranslation"));
+    assertEquals(Map.of("orgCode", "SKY"), records.get(1));
+  }
+
+  @Test
+  void ndjson_line_that_is_not_an_object_is_rejected() {
+    Iterator<Map<String, String>> records =
+        ImportFormat.NDJSON.records(new StringReader("[1, 2]\n"));
+    assertThrows(IllegalArgumentException.class, records::next);
+  }
+
+  @Test
+  void ndjson_line_that_is_not_valid_json_is_rejected_and_reading_continues() {
+    // Arrange
+    Iterator<Map<String, String>> records =
+        ImportFormat.NDJSON.records(
+            new StringReader("{\"a\":\"1\"}\n\n{\"a\": oops\n{\"a\":\"3\"}\n"));
+
+    // Act & Assert
+    assertEquals(Map.of("a", "1"), records.next());
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, records::next);
+    assertTrue(e.getMessage().startsWith("Line 3 is not valid JSON: "), e.getMessage());
+    assertEquals(Map.of("a", "3"), records.next());
+    assertFalse(records.hasNext());
+  }
+
+  @Test
+  void format_is_taken_from_file_extension() {
+    assertEquals(ImportFormat.NDJSON, ImportFormat.fromFilename("dates.ndjson"));
+    assertEquals(ImportFormat.NDJSON, ImportFormat.fromFilename("DATES.JSONL"));
+    assertEquals(ImportFormat.CSV, ImportFormat.fromFilename("dates.csv"));
+    assertEquals(ImportFormat.CSV, ImportFormat.fromFilename(null));
+  }
+}
@@ -1,13 +1,30 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_lines_repository_is_null_does_not_save() throws Exception {
 
     // arrange
 
@@ -18,7 +35,274 @@ public class JobContextTests {
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertNull(job1.getLog());
   }
 
+  @Test
+  public void log_inserts_one_line_per_message_in_sequence() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1);
+
+    // act
+    ctx.log("first");
+    ctx.log("second");
+
+    // assert
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(captor.capture());
+    List<JobLogLine> lines = captor.getAllValues();
+    assertEquals(17L, lines.get(0).getJobId());
+    assertEquals(0L, lines.get(0).getSeq());
+    assertEquals("first", lines.get(0).getLine());
+    assertEquals(1L, lines.get(1).getSeq());
+    assertEquals("second", lines.get(1).getLine());
+    assertNull(job1.getLog());
+  }
+
+  @Test
+  public void log_stores_each_line_of_a_multi_line_message_as_its_own_line() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1);
+
+    // act
+    ctx.log("boom\n  at a");
+    ctx.log("done");
+
+    // assert
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(3)).save(captor.capture());
+    List<JobLogLine> lines = captor.getAllValues();
+    assertEquals(List.of(0L, 1L, 2L), lines.stream().map(JobLogLine::getSeq).toList());
+    assertEquals(
+        List.of("boom", "  at a", "done"), lines.stream().map(JobLogLine::getLine).toList());
+    assertEquals(3L, ctx.getNextSeq());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void buffered_context_writes_lines_in_batches_of_flush_size() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 3, 60_000);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+
+    // assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+    verify(jobLogLinesRepository, never()).save(any());
+
+    // act
+    ctx.log("three");
+    ctx.log("four");
+    ctx.flush();
+    ctx.flush();
+
+    // assert
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, times(2)).insertAll(captor.capture());
+    List<List<String>> batches =
+        captor.getAllValues().stream()
+            .map(
+                batch ->
+                    ((List<JobLogLine>) batch).stream().map(JobLogLine::getLine).toList())
+            .toList();
+    assertEquals(List.of(List.of("one", "two", "three"), List.of("four")), batches);
+    assertEquals(3L, ((List<JobLogLine>) captor.getAllValues().get(1)).get(0).getSeq());
+  }
+
+  @Test
+  public void buffered_context_flushes_once_interval_has_passed() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 100, 0);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+
+    // assert
+    verify(jobLogLinesRepository, times(2)).insertAll(any());
+  }
+
+  @Test
+  public void flushIfDue_writes_lines_of_a_quiet_job_once_interval_has_passed()
+      throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 100, 50);
+    ctx.flushIfDue();
+    ctx.log("one");
+
+    // act
+    ctx.flushIfDue();
+
+    // assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+
+    // act: the job logs nothing more, but the interval passes
+    Thread.sleep(60);
+    ctx.flushIfDue();
+    ctx.flushIfDue();
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+  }
+
+  @Test
+  public void buffered_context_with_null_repository_does_not_save() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobContext ctx = new JobContext(null, job1, 2, 60_000);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+    ctx.flush();
+
+    // assert
+    assertNull(job1.getLog());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void written_lines_are_published_to_log_stream() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    JobLogStreamService logStream = mock(JobLogStreamService.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext unbuffered = new JobContext(jobLogLinesRepository, job1);
+    unbuffered.setLogStream(logStream);
+    JobContext buffered = new JobContext(jobLogLinesRepository, job1, 2, 60_000);
+    buffered.setLogStream(logStream);
+
+    // act
+    unbuffered.log("one");
+    buffered.log("two");
+    buffered.log("three");
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(logStream, times(2)).publish(eq(17L), captor.capture());
+    assertEquals(1, captor.getAllValues().get(0).size());
+    assertEquals(2, captor.getAllValues().get(1).size());
+  }
+
+  @Test
+  public void checkpoint_throws_once_job_is_asked_to_stop() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, Job.builder().id(3L).build());
+
+    // act & assert
+    assertFalse(ctx.isCancelled());
+    ctx.checkpoint();
+
+    ctx.stop("timed_out");
+    ctx.stop("cancelled");
+
+    assertTrue(ctx.isCancelled());
+    assertEquals("timed_out", ctx.getStopReason());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkpoint);
+    assertEquals("Job stopped: timed_out", e.getMessage());
+  }
+
+  @Test
+  public void progress_is_written_at_most_once_per_interval() throws Exception {
+
+    // arrange
+
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    Job job1 = Job.builder().id(5L).build();
+    JobContext ctx = new JobContext(null, job1);
+    ctx.setJobsRepository(jobsRepository);
+    ctx.setProgressIntervalMs(60_000);
+
+    // act
+    ctx.progress(1, 100);
+    ctx.progress(2, 100);
+    ctx.progress(3, 100);
+
+    // assert: the first report is written, the rest wait for the interval
+    verify(jobsRepository, times(1)).updateProgress(anyLong(), anyLong(), anyLong());
+    verify(jobsRepository).updateProgress(5L, 1L, 100L);
+    assertEquals(3L, job1.getProgressDone());
+    assertEquals(100L, job1.getProgressTotal());
+
+    // act
+    ctx.flushProgress();
+    ctx.flushProgress();
+
+    // assert: only the latest pending report is written, and only once
+    verify(jobsRepository, times(2)).updateProgress(anyLong(), anyLong(), anyLong());
+    verify(jobsRepository).updateProgress(5L, 3L, 100L);
+  }
+
+  @Test
+  public void progress_with_no_interval_is_written_every_time() throws Exception {
+
+    // arrange
+
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    JobContext ctx = new JobContext(null, Job.builder().id(5L).build());
+    ctx.setJobsRepository(jobsRepository);
+
+    // act
+    ctx.progress(1, 2);
+    ctx.progress(2, 2);
+
+    // assert
+    verify(jobsRepository, times(2)).updateProgress(anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  public void negative_progress_is_rejected() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> ctx.progress(-1, 10));
+    assertThrows(IllegalArgumentException.class, () -> ctx.progress(1, -10));
+  }
+
+  @Test
+  public void progress_without_repository_only_updates_job() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobContext ctx = new JobContext(null, job1);
+
+    // act
+    ctx.progress(4, 8);
+
+    // assert
+    assertEquals(4L, job1.getProgressDone());
+    assertEquals(8L, job1.getProgressTotal());
+  }
 }
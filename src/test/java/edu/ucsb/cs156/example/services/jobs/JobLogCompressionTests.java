@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class JobLogCompressionTests {
+
+  @Test
+  void compressed_log_decompresses_to_lines_joined_by_newline() {
+    // Arrange
+    List<String> lines = Arrays.asList("one", "", "three ✓", null);
+
+    // Act
+    byte[] data = JobLogCompression.compress(lines);
+
+    // Assert
+    assertEquals("one\n\nthree ✓\n", JobLogCompression.decompress(data));
+  }
+
+  @Test
+  void repetitive_log_compresses_well() {
+    // Arrange
+    List<String> lines = Collections.nCopies(10_000, "Processing row of the import file");
+
+    // Act
+    byte[] data = JobLogCompression.compress(lines);
+
+    // Assert
+    assertTrue(data.length < 10_000, "compressed to " + data.length + " bytes");
+  }
+
+  @Test
+  void readLines_returns_requested_range_split_only_on_newline() {
+    // Arrange
+    List<String> lines =
+        new ArrayList<>(IntStream.range(0, 5000).mapToObj(i -> "line " + i).toList());
+    lines.set(3, "carriage\rreturn");
+    lines.add("");
+    byte[] data = JobLogCompression.compress(lines);
+
+    // Act & Assert
+    assertEquals(List.of("line 0", "line 1"), JobLogCompression.readLines(data, 0, 2));
+    assertEquals(List.of("carriage\rreturn", "line 4"), JobLogCompression.readLines(data, 3, 2));
+    assertEquals(List.of("line 4999", ""), JobLogCompression.readLines(data, 4999, 10));
+    assertEquals(List.of(""), JobLogCompression.readLines(data, 5000, 10));
+    assertEquals(List.of(), JobLogCompression.readLines(data, 5001, 10));
+    assertEquals(List.of(), JobLogCompression.readLines(data, 0, 0));
+    assertEquals(lines, JobLogCompression.readLines(data, 0, Long.MAX_VALUE));
+  }
+}
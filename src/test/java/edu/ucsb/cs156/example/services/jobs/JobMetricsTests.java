@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+public class JobMetricsTests {
+
+  @Spy private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Mock private JobsRepository jobsRepository;
+
+  @InjectMocks private JobMetrics jobMetrics;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  void jobs_are_named_by_class_or_by_class_lambda_is_written_in() {
+    // Arrange
+    JobContextConsumer lambda = ctx -> {};
+
+    // Act & Assert
+    assertEquals("TestJob", JobMetrics.jobName(new TestJob()));
+    assertEquals("JobMetricsTests", JobMetrics.jobName(lambda));
+  }
+
+  @Test
+  void submitted_and_rejected_jobs_are_counted_by_job() {
+    // Act
+    jobMetrics.submitted(new TestJob());
+    jobMetrics.submitted(new TestJob());
+    jobMetrics.rejected(new TestJob());
+
+    // Assert
+    assertEquals(2.0, meterRegistry.get("jobs.submitted").tag("job", "TestJob").counter().count());
+    assertEquals(1.0, meterRegistry.get("jobs.rejected").tag("job", "TestJob").counter().count());
+  }
+
+  @Test
+  void finished_jobs_are_timed_by_job_and_status() {
+    // Act
+    jobMetrics.finished(new TestJob(), "complete", TimeUnit.MILLISECONDS.toNanos(250));
+    jobMetrics.finished(new TestJob(), "error", TimeUnit.MILLISECONDS.toNanos(50));
+    jobMetrics.finished(new TestJob(), "complete", TimeUnit.MILLISECONDS.toNanos(150));
+
+    // Assert
+    Timer complete =
+        meterRegistry.get("jobs.duration").tags("job", "TestJob", "status", "complete").timer();
+    assertEquals(2, complete.count());
+    assertEquals(400.0, complete.totalTime(TimeUnit.MILLISECONDS));
+    assertEquals(
+        1, meterRegistry.get("jobs.duration").tags("status", "error").timer().count());
+  }
+
+  @Test
+  void wait_is_time_from_creation_to_start() {
+    // Act
+    jobMetrics.started(
+        Job.builder().createdAt(ZonedDateTime.now().minusSeconds(30)).build(), new TestJob());
+    jobMetrics.started(Job.builder().build(), new TestJob());
+
+    // Assert
+    Timer wait = meterRegistry.get("jobs.wait").tag("job", "TestJob").timer();
+    assertEquals(1, wait.count());
+    assertEquals(30.0, wait.totalTime(TimeUnit.SECONDS), 1.0);
+  }
+
+  @Test
+  void gauges_report_queued_and_running_jobs() {
+    // Arrange
+    when(jobsRepository.countByStatus("queued")).thenReturn(7L);
+    Map<Long, String> running = Map.of(1L, "a", 2L, "b");
+
+    // Act
+    jobMetrics.registerGauges();
+    jobMetrics.registerRunning(running);
+
+    // Assert
+    assertEquals(7.0, meterRegistry.get("jobs.queued").gauge().value());
+    assertEquals(2.0, meterRegistry.get("jobs.running").gauge().value());
+  }
+}
@@ -0,0 +1,278 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobQueueServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService jobService;
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @InjectMocks private JobQueueService jobQueueService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobQueueService, "leaseMs", 60_000L);
+    ReflectionTestUtils.setField(jobQueueService, "maxAttempts", 3);
+    ReflectionTestUtils.setField(jobQueueService, "maxPerUser", 2);
+  }
+
+  @Test
+  void enqueue_stores_job_type_and_payload() {
+    // Arrange
+    User user = mock(User.class);
+
+    // Act
+    Job job =
+        jobQueueService.enqueue(
+            TestJob.builder().fail(true).sleepMs(10).build(),
+            Job.builder().createdBy(user).timeoutMs(500L).priority(7).build());
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals(TestJob.class.getName(), job.getJobType());
+    assertEquals("{\"fail\":true,\"sleepMs\":10}", job.getPayload());
+    assertEquals(user, job.getCreatedBy());
+    assertEquals(500L, job.getTimeoutMs());
+    assertEquals(7, job.getPriority());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  void enqueue_rejects_job_that_cannot_be_stored() {
+    // Arrange
+    DurableJob unserializable =
+        new DurableJob() {
+          public Object getSelf() {
+            return this;
+          }
+
+          @Override
+          public void accept(JobContext c) {}
+        };
+
+    // Act & Assert
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobQueueService.enqueue(unserializable, Job.builder().build()));
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  void claim_with_no_room_does_nothing() {
+    // Act
+    List<Job> claimed = jobQueueService.claim(0);
+
+    // Assert
+    assertTrue(claimed.isEmpty());
+    verifyNoInteractions(jobsRepository);
+  }
+
+  @Test
+  void claim_with_nothing_queued_claims_nothing() {
+    // Arrange
+    when(jobsRepository.lockClaimableIds(any(), eq(3), eq(2), eq(5))).thenReturn(List.of());
+
+    // Act
+    List<Job> claimed = jobQueueService.claim(5);
+
+    // Assert
+    assertTrue(claimed.isEmpty());
+    verify(jobsRepository, times(1)).failExhausted(any(), eq(3));
+    verify(jobsRepository, never()).claim(any(), any(), any(), any());
+  }
+
+  @Test
+  void claim_locks_then_claims_jobs_for_this_worker() {
+    // Arrange
+    Job job1 = Job.builder().id(1L).status("claimed").build();
+    Job job2 = Job.builder().id(2L).status("claimed").build();
+    when(jobsRepository.lockClaimableIds(any(), eq(3), eq(2), eq(5))).thenReturn(List.of(1L, 2L));
+    when(jobsRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(job1, job2));
+
+    // Act
+    List<Job> claimed = jobQueueService.claim(5);
+
+    // Assert
+    assertEquals(List.of(job1, job2), claimed);
+    ArgumentCaptor<ZonedDateTime> now = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> lease = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository)
+        .claim(
+            eq(List.of(1L, 2L)),
+            eq(jobQueueService.getWorkerId()),
+            now.capture(),
+            lease.capture());
+    assertEquals(now.getValue().plusSeconds(60), lease.getValue());
+  }
+
+  @Test
+  void renewLeases_renews_this_workers_leases() {
+    // Act
+    jobQueueService.renewLeases();
+
+    // Assert
+    ArgumentCaptor<ZonedDateTime> now = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> lease = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository)
+        .renewLeases(eq(jobQueueService.getWorkerId()), now.capture(), lease.capture());
+    assertEquals(now.getValue().plusSeconds(60), lease.getValue());
+  }
+
+  @Test
+  void dispatch_runs_job_read_back_from_payload() {
+    // Arrange
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("claimed")
+            .jobType(TestJob.class.getName())
+            .payload("{\"fail\":false,\"sleepMs\":25}")
+            .attempts(1)
+            .build();
+
+    when(jobService.runClaimed(eq(job), any())).thenReturn(true);
+
+    // Act
+    jobQueueService.dispatch(job);
+
+    // Assert
+    assertEquals("claimed", job.getStatus());
+    verify(jobsRepository, never()).save(job);
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobService, times(1)).runClaimed(eq(job), captor.capture());
+    assertEquals(TestJob.builder().fail(false).sleepMs(25).build(), captor.getValue());
+  }
+
+  @Test
+  void dispatch_fails_job_whose_type_is_not_a_durable_job() {
+    // Arrange
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("claimed")
+            .jobType(String.class.getName())
+            .payload("\"x\"")
+            .build();
+    when(jobService.nextLogSeq(job)).thenReturn(4L);
+
+    // Act
+    jobQueueService.dispatch(job);
+
+    // Assert
+    assertEquals("error", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobService, never()).runClaimed(any(), any());
+    ArgumentCaptor<JobLogLine> line = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository).save(line.capture());
+    assertEquals(4L, line.getValue().getSeq());
+    assertEquals(
+        "Job cannot be read back from the queue: java.lang.String is not a DurableJob",
+        line.getValue().getLine());
+  }
+
+  @Test
+  void dispatch_fails_job_with_unreadable_payload() {
+    // Arrange
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("claimed")
+            .jobType(TestJob.class.getName())
+            .payload("not json")
+            .build();
+
+    // Act
+    jobQueueService.dispatch(job);
+
+    // Assert
+    assertEquals("error", job.getStatus());
+    verify(jobService, never()).runClaimed(any(), any());
+  }
+
+  @Test
+  void dispatch_returns_job_to_queue_when_scheduler_is_full() {
+    // Arrange
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("claimed")
+            .claimedBy("me")
+            .leaseExpiresAt(ZonedDateTime.now())
+            .attempts(1)
+            .jobType(TestJob.class.getName())
+            .payload("{\"fail\":false,\"sleepMs\":0}")
+            .build();
+    when(jobService.runClaimed(eq(job), any())).thenReturn(false);
+
+    // Act
+    jobQueueService.dispatch(job);
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals(null, job.getClaimedBy());
+    assertEquals(null, job.getLeaseExpiresAt());
+    assertEquals(0, job.getAttempts());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  void worker_claims_only_as_many_jobs_as_the_scheduler_has_room_for() {
+    // Arrange
+    JobQueueWorker worker = new JobQueueWorker();
+    JobQueueService queue = mock(JobQueueService.class);
+    JobScheduler scheduler = mock(JobScheduler.class);
+    ReflectionTestUtils.setField(worker, "jobQueueService", queue);
+    ReflectionTestUtils.setField(worker, "jobScheduler", scheduler);
+    ReflectionTestUtils.setField(worker, "batchSize", 10);
+    when(scheduler.available()).thenReturn(3);
+    Job job = Job.builder().id(1L).build();
+    when(queue.claim(anyInt())).thenReturn(List.of(job));
+
+    // Act
+    worker.poll();
+    worker.heartbeat();
+
+    // Assert
+    verify(queue).claim(3);
+    verify(queue).dispatch(job);
+    verify(queue).renewLeases();
+  }
+}
@@ -0,0 +1,296 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.CompressedJobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.UnfinishedJobStatusException;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CompressedJobLogsRepository compressedJobLogsRepository;
+
+  @Mock private JobRetentionService self;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  private final ZonedDateTime now = ZonedDateTime.parse("2025-05-01T03:17:00Z");
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetentionService, "self", self);
+    ReflectionTestUtils.setField(jobRetentionService, "maxAgeDays", 30);
+    ReflectionTestUtils.setField(jobRetentionService, "compactAfterDays", 7);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+    ReflectionTestUtils.setField(jobRetentionService, "compressThresholdBytes", 16L);
+  }
+
+  @Test
+  void sweep_deletes_old_jobs_a_batch_at_a_time() {
+    // Arrange
+    when(jobsRepository.findIdsFinishedBefore(
+            JobRetentionService.FINISHED_STATUSES, now.minusDays(30), Limit.of(2)))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L));
+    when(self.deleteJobs(any())).thenReturn(2, 1);
+
+    // Act
+    jobRetentionService.sweep(now);
+
+    // Assert
+    verify(self).deleteJobs(List.of(1L, 2L));
+    verify(self).deleteJobs(List.of(3L));
+    verify(jobsRepository, times(2)).findIdsFinishedBefore(any(), any(), any());
+  }
+
+  @Test
+  void sweep_compacts_logs_a_batch_at_a_time() {
+    // Arrange
+    when(jobLogLinesRepository.findJobIdsToCompact(
+            JobRetentionService.FINISHED_STATUSES, now.minusDays(7), Limit.of(2)))
+        .thenReturn(List.of(4L, 5L))
+        .thenReturn(List.of());
+
+    // Act
+    jobRetentionService.sweep(now);
+
+    // Assert
+    verify(self, times(1)).compactLogs(List.of(4L, 5L));
+    verify(jobLogLinesRepository, times(2)).findJobIdsToCompact(any(), any(), any());
+  }
+
+  @Test
+  void sweep_does_nothing_when_turned_off() {
+    // Arrange
+    ReflectionTestUtils.setField(jobRetentionService, "maxAgeDays", 0);
+    ReflectionTestUtils.setField(jobRetentionService, "compactAfterDays", 0);
+
+    // Act
+    jobRetentionService.sweep();
+
+    // Assert
+    verify(jobsRepository, never()).findIdsFinishedBefore(any(), any(), any());
+    verify(jobLogLinesRepository, never()).findJobIdsToCompact(any(), any(), any());
+  }
+
+  @Test
+  void deleteJobs_deletes_log_lines_then_jobs() {
+    // Arrange
+    when(jobsRepository.deleteAllByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+    // Act
+    int deleted = jobRetentionService.deleteJobs(List.of(1L, 2L));
+
+    // Assert
+    assertEquals(2, deleted);
+    verify(jobLogLinesRepository).deleteAllByJobIdIn(List.of(1L, 2L));
+    verify(compressedJobLogsRepository).deleteAllByJobIdIn(List.of(1L, 2L));
+  }
+
+  @Test
+  void compactLogs_folds_lines_into_log_column() {
+    // Arrange
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(4L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(4L).seq(0).line("one").build(),
+                JobLogLine.builder().jobId(4L).seq(1).line("two").build()));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(5L)).thenReturn(List.of());
+
+    // Act
+    jobRetentionService.compactLogs(List.of(4L, 5L));
+
+    // Assert
+    verify(jobsRepository).updateLog(4L, "one\ntwo", 2L);
+    verify(jobsRepository).updateLog(eq(5L), eq(""), eq(0L));
+    verify(jobLogLinesRepository).deleteAllByJobIdIn(List.of(4L, 5L));
+    verify(compressedJobLogsRepository, never()).save(any());
+  }
+
+  @Test
+  void compactLogs_compresses_large_logs() {
+    // Arrange
+    List<String> lines = List.of("a line of twenty-one", "and another");
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(6L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(6L).seq(0).line(lines.get(0)).build(),
+                JobLogLine.builder().jobId(6L).seq(1).line(lines.get(1)).build()));
+
+    // Act
+    jobRetentionService.compactLogs(List.of(6L));
+
+    // Assert
+    ArgumentCaptor<CompressedJobLog> captor = ArgumentCaptor.forClass(CompressedJobLog.class);
+    verify(compressedJobLogsRepository).save(captor.capture());
+    assertEquals(6L, captor.getValue().getJobId());
+    assertEquals(2, captor.getValue().getLineCount());
+    assertEquals(32, captor.getValue().getUncompressedSize());
+    assertEquals(
+        "a line of twenty-one\nand another",
+        JobLogCompression.decompress(captor.getValue().getData()));
+    verify(jobsRepository, never()).updateLog(eq(6L), any(), anyLong());
+    verify(jobsRepository).updateLogLines(6L, 2L);
+    verify(jobLogLinesRepository).deleteAllByJobIdIn(List.of(6L));
+  }
+
+  @Test
+  void compactLogs_counts_each_line_of_multi_line_messages() {
+    // Arrange
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(7L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(7L).seq(0).line("starting").build(),
+                JobLogLine.builder().jobId(7L).seq(1).line("trace 1\ntrace 2\ntrace 3").build(),
+                JobLogLine.builder().jobId(7L).seq(2).line("done").build()));
+
+    // Act
+    jobRetentionService.compactLogs(List.of(7L));
+
+    // Assert
+    ArgumentCaptor<CompressedJobLog> captor = ArgumentCaptor.forClass(CompressedJobLog.class);
+    verify(compressedJobLogsRepository).save(captor.capture());
+    long total = captor.getValue().getLineCount();
+    assertEquals(5, total);
+    verify(jobsRepository).updateLogLines(7L, 5L);
+    assertEquals(
+        List.of("trace 3", "done"),
+        JobLogCompression.readLines(captor.getValue().getData(), total - 2, 2));
+  }
+
+  @Test
+  void deleteMatching_deletes_matching_jobs_a_batch_at_a_time() {
+    // Arrange
+    ZonedDateTime before = now.minusDays(1);
+    when(jobsRepository.findIdsWithStatusInMatching(List.of("error"), before, Limit.of(2)))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L));
+    when(self.deleteJobs(any())).thenReturn(2, 1);
+
+    // Act
+    int deleted = jobRetentionService.deleteMatching("error", before, false);
+
+    // Assert
+    assertEquals(3, deleted);
+    verify(self).deleteJobs(List.of(1L, 2L));
+    verify(self).deleteJobs(List.of(3L));
+  }
+
+  @Test
+  void deleteMatching_without_filters_only_deletes_finished_jobs() {
+    // Arrange
+    when(jobsRepository.findIdsWithStatusInMatching(
+            JobRetentionService.FINISHED_STATUSES, null, Limit.of(2)))
+        .thenReturn(List.of(1L));
+    when(self.deleteJobs(any())).thenReturn(1);
+
+    // Act
+    int deleted = jobRetentionService.deleteMatching(null, null, false);
+
+    // Assert
+    assertEquals(1, deleted);
+    verify(self).deleteJobs(List.of(1L));
+  }
+
+  @Test
+  void deleteMatching_rejects_the_status_of_unfinished_jobs() {
+    // Act
+    UnfinishedJobStatusException e =
+        assertThrows(
+            UnfinishedJobStatusException.class,
+            () -> jobRetentionService.deleteMatching("running", null, false));
+
+    // Assert
+    assertEquals(
+        "Only finished jobs are deleted unless includeUnfinished=true, and running is not one of "
+            + JobRetentionService.FINISHED_STATUSES,
+        e.getMessage());
+    verify(jobsRepository, never()).findIdsWithStatusInMatching(any(), any(), any());
+  }
+
+  @Test
+  void deleteMatching_including_unfinished_jobs_deletes_any_status() {
+    // Arrange
+    when(jobsRepository.findIdsMatching("running", null, Limit.of(2)))
+        .thenReturn(List.of(6L));
+    when(self.deleteJobs(any())).thenReturn(1);
+
+    // Act
+    int deleted = jobRetentionService.deleteMatching("running", null, true);
+
+    // Assert
+    assertEquals(1, deleted);
+    verify(self).deleteJobs(List.of(6L));
+    verify(self, never()).deleteAll();
+  }
+
+  @Test
+  void deleteMatching_including_unfinished_jobs_created_before_a_time_deletes_any_status() {
+    // Arrange
+    ZonedDateTime before = now.minusDays(1);
+    when(jobsRepository.findIdsMatching(null, before, Limit.of(2))).thenReturn(List.of(6L));
+    when(self.deleteJobs(any())).thenReturn(1);
+
+    // Act
+    int deleted = jobRetentionService.deleteMatching(null, before, true);
+
+    // Assert
+    assertEquals(1, deleted);
+    verify(self).deleteJobs(List.of(6L));
+    verify(self, never()).deleteAll();
+  }
+
+  @Test
+  void deleteMatching_including_unfinished_jobs_without_filters_deletes_everything_in_bulk() {
+    // Arrange
+    when(self.deleteAll()).thenReturn(7);
+
+    // Act
+    int deleted = jobRetentionService.deleteMatching(null, null, true);
+
+    // Assert
+    assertEquals(7, deleted);
+    verify(jobsRepository, never()).findIdsMatching(any(), any(), any());
+  }
+
+  @Test
+  void deleteAll_deletes_logs_then_jobs_one_statement_each() {
+    // Arrange
+    when(jobsRepository.deleteAllInBulk()).thenReturn(7);
+
+    // Act
+    int deleted = jobRetentionService.deleteAll();
+
+    // Assert
+    assertEquals(7, deleted);
+    verify(jobLogLinesRepository).deleteAllInBulk();
+    verify(compressedJobLogsRepository).deleteAllInBulk();
+    verify(jobsRepository, never()).deleteAll();
+  }
+}
@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JobSchedulerTests {
+
+  private static final JobContextConsumer NOOP = ctx -> {};
+
+  private long nextId = 1;
+
+  private Job job(long userId, int priority) {
+    return Job.builder()
+        .id(nextId++)
+        .createdBy(User.builder().id(userId).build())
+        .priority(priority)
+        .build();
+  }
+
+  private List<Long> drain(JobScheduler scheduler) {
+    List<Long> started = new ArrayList<>();
+    for (JobScheduler.Pending next = scheduler.next(); next != null; next = scheduler.next()) {
+      started.add(next.job().getId());
+    }
+    return started;
+  }
+
+  @Test
+  void higher_priority_jobs_start_first() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(10, 10, 0);
+    Job low = job(1, 0);
+    Job high = job(1, 5);
+    Job otherUserLow = job(2, 0);
+    scheduler.add(low, NOOP);
+    scheduler.add(high, NOOP);
+    scheduler.add(otherUserLow, NOOP);
+
+    // Act
+    List<Long> started = drain(scheduler);
+
+    // Assert
+    assertEquals(List.of(high.getId(), otherUserLow.getId(), low.getId()), started);
+  }
+
+  @Test
+  void users_take_turns() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(10, 10, 0);
+    Job a1 = job(1, 0);
+    Job a2 = job(1, 0);
+    Job a3 = job(1, 0);
+    Job b1 = job(2, 0);
+    Job b2 = job(2, 0);
+    List.of(a1, a2, a3, b1, b2).forEach(j -> scheduler.add(j, NOOP));
+
+    // Act
+    List<Long> started = drain(scheduler);
+
+    // Assert
+    assertEquals(
+        List.of(a1.getId(), b1.getId(), a2.getId(), b2.getId(), a3.getId()), started);
+  }
+
+  @Test
+  void user_with_fewest_running_jobs_goes_next() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(3, 10, 0);
+    Job a1 = job(1, 0);
+    Job a2 = job(1, 0);
+    Job a3 = job(1, 0);
+    List.of(a1, a2, a3).forEach(j -> scheduler.add(j, NOOP));
+    assertEquals(List.of(a1.getId(), a2.getId(), a3.getId()), drain(scheduler));
+    Job a4 = job(1, 0);
+    Job b1 = job(2, 0);
+    scheduler.add(a4, NOOP);
+    scheduler.add(b1, NOOP);
+
+    // Act
+    scheduler.finished(a1.getId());
+    JobScheduler.Pending next = scheduler.next();
+
+    // Assert
+    assertEquals(b1.getId(), next.job().getId());
+    assertNull(scheduler.next());
+  }
+
+  @Test
+  void user_at_cap_waits_until_one_of_their_jobs_finishes() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(10, 10, 1);
+    Job a1 = job(1, 0);
+    Job a2 = job(1, 9);
+    Job b1 = job(2, 0);
+    scheduler.add(a1, NOOP);
+    assertEquals(List.of(a1.getId()), drain(scheduler));
+    scheduler.add(a2, NOOP);
+    scheduler.add(b1, NOOP);
+
+    // Act & Assert
+    assertEquals(List.of(b1.getId()), drain(scheduler));
+    assertTrue(scheduler.finished(a1.getId()));
+    assertEquals(List.of(a2.getId()), drain(scheduler));
+  }
+
+  @Test
+  void add_refuses_jobs_beyond_capacity() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(1, 2, 0);
+
+    // Act & Assert
+    assertTrue(scheduler.add(job(1, 0), NOOP));
+    assertTrue(scheduler.add(job(1, 0), NOOP));
+    assertFalse(scheduler.add(job(1, 0), NOOP));
+    scheduler.next();
+    assertTrue(scheduler.add(job(1, 0), NOOP));
+    assertEquals(2, scheduler.pendingCount());
+  }
+
+  @Test
+  void available_counts_free_slots_not_already_waited_for() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(3, 10, 0);
+    Job a1 = job(1, 0);
+    scheduler.add(a1, NOOP);
+    scheduler.next();
+    assertEquals(2, scheduler.available());
+
+    // Act & Assert
+    scheduler.add(job(1, 0), NOOP);
+    assertEquals(1, scheduler.available());
+    scheduler.add(job(2, 0), NOOP);
+    scheduler.add(job(2, 0), NOOP);
+    assertEquals(0, scheduler.available());
+    scheduler.finished(a1.getId());
+    assertEquals(0, scheduler.available());
+  }
+
+  @Test
+  void removed_job_never_starts() {
+    // Arrange
+    JobScheduler scheduler = new JobScheduler(10, 10, 0);
+    Job a1 = job(1, 0);
+    Job a2 = job(1, 0);
+    scheduler.add(a1, NOOP);
+    scheduler.add(a2, NOOP);
+
+    // Act
+    JobScheduler.Pending removed = scheduler.remove(a1.getId());
+
+    // Assert
+    assertEquals(a1, removed.job());
+    assertNull(scheduler.remove(a1.getId()));
+    assertEquals(List.of(a2.getId()), drain(scheduler));
+    assertFalse(scheduler.finished(a1.getId()));
+  }
+}
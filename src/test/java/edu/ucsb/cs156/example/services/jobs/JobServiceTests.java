@@ -0,0 +1,704 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyNotSupportedException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.CompressedJobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CompressedJobLogsRepository compressedJobLogsRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService self;
+
+  @Mock private JobLogStreamService jobLogStreamService;
+
+  @Mock private JobQueueService jobQueueService;
+
+  @Mock private JobMetrics jobMetrics;
+
+  @Spy private JobScheduler jobScheduler = new JobScheduler(1, 1, 0);
+
+  @InjectMocks private JobService jobService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  void startup_fails_in_process_jobs_left_unfinished_by_an_earlier_run() {
+    // Arrange
+    ZonedDateTime startedAt = (ZonedDateTime) ReflectionTestUtils.getField(jobService, "startedAt");
+    when(jobsRepository.failOrphaned(startedAt)).thenReturn(2).thenReturn(0);
+
+    // Act
+    jobService.failOrphanedJobs();
+    jobService.failOrphanedJobs();
+
+    // Assert
+    verify(jobsRepository, times(2)).failOrphaned(startedAt);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void buffered_job_flushes_remaining_lines_on_completion() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBuffered", true);
+    ReflectionTestUtils.setField(jobService, "logFlushSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60_000L);
+    Job job = Job.builder().id(1L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("one");
+          ctx.log("two");
+        });
+
+    // Assert
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, times(1)).insertAll(captor.capture());
+    verify(jobLogLinesRepository, never()).save(any());
+    assertEquals(2, ((List<JobLogLine>) captor.getValue()).size());
+    assertEquals("complete", job.getStatus());
+    assertEquals(2L, job.getLogLines());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).publish(1L, (List<JobLogLine>) captor.getValue());
+    verify(jobLogStreamService, times(1)).complete(job);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void buffered_job_flushes_remaining_lines_on_failure() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBuffered", true);
+    ReflectionTestUtils.setField(jobService, "logFlushSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60_000L);
+    Job job = Job.builder().id(1L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("one");
+          throw new Exception("boom");
+        });
+
+    // Assert
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, times(1)).insertAll(captor.capture());
+    assertEquals(
+        List.of("one", "boom"),
+        ((List<JobLogLine>) captor.getValue()).stream().map(JobLogLine::getLine).toList());
+    assertEquals("error", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).complete(job);
+  }
+
+  @Test
+  void job_is_marked_running_when_it_starts() {
+    // Arrange
+    Job job = Job.builder().id(1L).status("queued").build();
+
+    // Act: the job fails unless it was marked running before it started
+    jobService.runJobAsync(job, ctx -> verify(jobsRepository).markRunning(1L));
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void job_rejected_by_executor_is_marked_rejected() {
+    // Arrange
+    JobContextConsumer jobFunction = mock(JobContextConsumer.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    doThrow(new TaskRejectedException("queue full"))
+        .when(self)
+        .runJobAsync(any(Job.class), any(JobContextConsumer.class));
+
+    // Act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // Assert
+    assertEquals("rejected", job.getStatus());
+    assertEquals(1L, job.getLogLines());
+    verify(jobsRepository, times(2)).save(job);
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(1)).save(captor.capture());
+    assertEquals("Job rejected: job executor is at capacity", captor.getValue().getLine());
+    verify(jobMetrics).submitted(jobFunction);
+    verify(jobMetrics).rejected(jobFunction);
+    verify(jobFunction).discard();
+  }
+
+  @Test
+  void durable_job_is_queued_when_queue_is_enabled() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "queueEnabled", true);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job queued = Job.builder().id(3L).status("queued").build();
+    when(jobQueueService.enqueue(eq(testJob), any(Job.class))).thenReturn(queued);
+
+    // Act
+    Job job = jobService.runAsJob(testJob);
+
+    // Assert
+    assertEquals(queued, job);
+    verify(self, never()).runJobAsync(any(), any());
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  void other_jobs_run_in_process_when_queue_is_enabled() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "queueEnabled", true);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    JobContextConsumer jobFunction = ctx -> ctx.log("in process");
+
+    // Act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    verify(jobQueueService, never()).enqueue(any(), any());
+    verify(self, times(1)).runJobAsync(job, jobFunction);
+  }
+
+  @Test
+  void retried_job_continues_its_log() {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").attempts(2).build();
+    when(jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(1L))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(1L).seq(6).build()));
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("again"));
+
+    // Assert
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(2)).save(captor.capture());
+    assertEquals(7L, captor.getAllValues().get(0).getSeq());
+    assertEquals("Retrying job (attempt 2)", captor.getAllValues().get(0).getLine());
+    assertEquals(8L, captor.getAllValues().get(1).getSeq());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void nextLogSeq_of_job_without_lines_is_zero() {
+    // Act & Assert
+    assertEquals(0L, jobService.nextLogSeq(Job.builder().id(9L).build()));
+  }
+
+  /** Starts a job that blocks until it is interrupted, and waits for it to be running. */
+  private Thread startBlockingJob(Job job) throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    Thread worker =
+        new Thread(
+            () ->
+                jobService.runJobAsync(
+                    job,
+                    ctx -> {
+                      ctx.log("started");
+                      started.countDown();
+                      Thread.sleep(60_000);
+                      ctx.log("never logged");
+                    }));
+    worker.start();
+    started.await();
+    return worker;
+  }
+
+  private List<String> loggedLines() {
+    ArgumentCaptor<JobLogLine> captor = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, atLeastOnce()).save(captor.capture());
+    return captor.getAllValues().stream().map(JobLogLine::getLine).toList();
+  }
+
+  @Test
+  void cancel_interrupts_job_running_on_this_instance() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    Thread worker = startBlockingJob(job);
+
+    // Act
+    jobService.cancel(1L);
+    worker.join(10_000);
+
+    // Assert
+    assertEquals("cancelled", job.getStatus());
+    assertEquals(List.of("started", "Job cancelled"), loggedLines());
+    verify(jobsRepository, never()).stopUnfinished(anyLong(), any());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).complete(job);
+  }
+
+  @Test
+  void job_past_its_timeout_is_stopped_as_timed_out() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").timeoutMs(0L).build();
+    Thread worker = startBlockingJob(job);
+
+    // Act
+    jobService.checkRunningJobs();
+    worker.join(10_000);
+
+    // Assert
+    assertEquals("timed_out", job.getStatus());
+    assertEquals(List.of("started", "Job timed out after 0 ms"), loggedLines());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void buffered_lines_of_a_quiet_job_are_written_by_the_running_job_check() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBuffered", true);
+    ReflectionTestUtils.setField(jobService, "logFlushSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 50L);
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    Thread worker = startBlockingJob(job);
+    verify(jobLogLinesRepository, never()).insertAll(any());
+
+    // Act: the job logged "started", then went quiet for longer than the flush interval
+    Thread.sleep(60);
+    jobService.checkRunningJobs();
+
+    // Assert
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, times(1)).insertAll(captor.capture());
+    assertEquals(
+        List.of("started"),
+        ((List<JobLogLine>) captor.getValue()).stream().map(JobLogLine::getLine).toList());
+    jobService.cancel(1L);
+    worker.join(10_000);
+  }
+
+  @Test
+  void job_cancelled_by_another_instance_is_stopped() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findIdsWithStatus(anyCollection(), eq("cancelled")))
+        .thenReturn(List.of(1L));
+    Thread worker = startBlockingJob(job);
+
+    // Act
+    jobService.checkRunningJobs();
+    worker.join(10_000);
+
+    // Assert
+    assertEquals("cancelled", job.getStatus());
+  }
+
+  @Test
+  void job_within_its_timeout_keeps_running() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").timeoutMs(60_000L).build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    Thread worker = startBlockingJob(job);
+
+    // Act
+    jobService.checkRunningJobs();
+
+    // Assert
+    assertEquals("running", job.getStatus());
+    jobService.cancel(1L);
+    worker.join(10_000);
+  }
+
+  @Test
+  void job_that_ignores_interrupt_is_still_recorded_as_cancelled() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.cancel(1L);
+          ctx.log("still here");
+        });
+
+    // Assert
+    assertEquals("cancelled", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  void cancel_marks_job_not_running_here_as_cancelled() {
+    // Arrange
+    Job job = Job.builder().id(2L).status("queued").build();
+    when(jobsRepository.findById(2L)).thenReturn(Optional.of(job));
+    when(jobsRepository.stopUnfinished(2L, "cancelled")).thenReturn(1);
+
+    // Act
+    Job cancelled = jobService.cancel(2L);
+
+    // Assert
+    assertEquals("cancelled", cancelled.getStatus());
+  }
+
+  @Test
+  void cancel_leaves_finished_job_alone() {
+    // Arrange
+    Job job = Job.builder().id(2L).status("complete").build();
+    when(jobsRepository.findById(2L)).thenReturn(Optional.of(job));
+    when(jobsRepository.stopUnfinished(2L, "cancelled")).thenReturn(0);
+
+    // Act
+    Job result = jobService.cancel(2L);
+
+    // Assert
+    assertEquals("complete", result.getStatus());
+  }
+
+  @Test
+  void cancel_of_missing_job_throws() {
+    // Arrange
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // Act & Assert
+    assertThrows(EntityNotFoundException.class, () -> jobService.cancel(7L));
+  }
+
+  @Test
+  void runAsJob_applies_default_timeout_unless_one_is_given() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    ReflectionTestUtils.setField(jobService, "defaultTimeoutMs", 30_000L);
+
+    // Act
+    Job withDefault = jobService.runAsJob(ctx -> {});
+    Job withOwn = jobService.runAsJob(ctx -> {}, Duration.ofSeconds(5));
+
+    // Assert
+    assertEquals(30_000L, withDefault.getTimeoutMs());
+    assertEquals(5_000L, withOwn.getTimeoutMs());
+  }
+
+  @Test
+  void pending_progress_is_written_by_periodic_check_and_on_completion() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "progressIntervalMs", 60_000L);
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    CountDownLatch reported = new CountDownLatch(1);
+    Thread worker =
+        new Thread(
+            () ->
+                jobService.runJobAsync(
+                    job,
+                    ctx -> {
+                      ctx.progress(1, 10);
+                      ctx.progress(5, 10);
+                      reported.countDown();
+                      Thread.sleep(60_000);
+                    }));
+    worker.start();
+    reported.await();
+
+    // Act
+    jobService.checkRunningJobs();
+
+    // Assert
+    verify(jobsRepository).updateProgress(1L, 1L, 10L);
+    verify(jobsRepository).updateProgress(1L, 5L, 10L);
+
+    jobService.cancel(1L);
+    worker.join(10_000);
+    ArgumentCaptor<Job> saved = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository).save(saved.capture());
+    assertEquals(5L, saved.getValue().getProgressDone());
+    assertEquals(10L, saved.getValue().getProgressTotal());
+  }
+
+  @Test
+  void finished_job_is_timed_with_its_final_status() {
+    // Arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          throw new Exception("boom");
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    verify(jobMetrics).started(job, jobFunction);
+    verify(jobMetrics).finished(eq(jobFunction), eq("error"), anyLong());
+  }
+
+  @Test
+  void runAsJob_waits_for_room_in_the_executor_and_rejects_when_too_many_wait() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) job.setId(job.getPriority() + 10L);
+              return job;
+            });
+    JobContextConsumer jobFunction = ctx -> {};
+
+    // Act
+    Job first = jobService.runAsJob(jobFunction, null, 1);
+    Job second = jobService.runAsJob(jobFunction, null, 2);
+    Job third = jobService.runAsJob(jobFunction, null, 3);
+
+    // Assert
+    verify(self, times(1)).runJobAsync(first, jobFunction);
+    verify(self, never()).runJobAsync(second, jobFunction);
+    assertEquals("queued", second.getStatus());
+    assertEquals(2, second.getPriority());
+    assertEquals("rejected", third.getStatus());
+    verify(jobMetrics).rejected(jobFunction);
+  }
+
+  @Test
+  void finished_job_makes_room_for_the_next_waiting_job() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job first = Job.builder().id(1L).status("running").build();
+    Job second = Job.builder().id(2L).status("running").build();
+    JobContextConsumer jobFunction = ctx -> {};
+    jobScheduler.add(first, jobFunction);
+    jobService.dispatchPending();
+    jobScheduler.add(second, jobFunction);
+    jobService.dispatchPending();
+    verify(self, times(1)).runJobAsync(first, jobFunction);
+
+    // Act
+    jobService.runJobAsync(first, jobFunction);
+
+    // Assert
+    verify(self, times(1)).runJobAsync(second, jobFunction);
+  }
+
+  @Test
+  void claimed_job_shares_the_scheduler_with_jobs_launched_here() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    JobContextConsumer jobFunction = ctx -> {};
+    Job launched = jobService.runAsJob(jobFunction);
+    Job claimed = Job.builder().id(7L).status("claimed").build();
+
+    // Act
+    boolean taken = jobService.runClaimed(claimed, jobFunction);
+
+    // Assert: with one slot, the claimed job waits for the launched one to finish
+    assertTrue(taken);
+    verify(self).runJobAsync(launched, jobFunction);
+    verify(self, never()).runJobAsync(claimed, jobFunction);
+    jobScheduler.finished(launched.getId());
+    jobService.dispatchPending();
+    verify(self).runJobAsync(claimed, jobFunction);
+  }
+
+  @Test
+  void cancel_of_waiting_job_removes_it_without_running_it() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job first = Job.builder().id(1L).status("running").build();
+    Job second = Job.builder().id(2L).status("running").build();
+    JobContextConsumer jobFunction = ctx -> {};
+    JobContextConsumer waitingFunction = mock(JobContextConsumer.class);
+    jobScheduler.add(first, jobFunction);
+    jobService.dispatchPending();
+    jobScheduler.add(second, waitingFunction);
+    jobService.dispatchPending();
+    when(jobsRepository.findById(2L)).thenReturn(Optional.of(second));
+
+    // Act
+    Job cancelled = jobService.cancel(2L);
+
+    // Assert
+    assertEquals("cancelled", cancelled.getStatus());
+    verify(jobsRepository).save(second);
+    verify(jobLogStreamService).complete(second);
+    verify(jobsRepository, never()).stopUnfinished(anyLong(), any());
+    verify(waitingFunction).discard();
+    jobScheduler.finished(1L);
+    jobService.dispatchPending();
+    verify(self, never()).runJobAsync(second, waitingFunction);
+  }
+
+  @Test
+  void durable_job_is_queued_with_its_priority() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "queueEnabled", true);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+
+    // Act
+    jobService.runAsJob(testJob, Duration.ofSeconds(1), 5);
+
+    // Assert
+    ArgumentCaptor<Job> queued = ArgumentCaptor.forClass(Job.class);
+    verify(jobQueueService).enqueue(eq(testJob), queued.capture());
+    assertEquals(1_000L, queued.getValue().getTimeoutMs());
+    assertEquals(5, queued.getValue().getPriority());
+  }
+
+  @Test
+  void relaunch_with_same_key_returns_unfinished_job() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    when(jobQueueService.payload(testJob)).thenReturn("{}");
+    Job first = jobService.runAsJob(testJob, null, 0, "key-1");
+    first.setId(5L);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(null, "key-1"))
+        .thenReturn(Optional.of(first));
+
+    // Act
+    Job second = jobService.runAsJob(testJob, null, 0, "key-1");
+
+    // Assert
+    assertEquals(first, second);
+    verify(jobsRepository, times(1)).save(any(Job.class));
+    verify(jobMetrics, times(1)).submitted(testJob);
+    verify(self, times(1)).runJobAsync(any(), any());
+  }
+
+  @Test
+  void relaunch_with_same_key_and_different_parameters_conflicts() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    when(jobQueueService.payload(testJob)).thenReturn("{}");
+    Job first = jobService.runAsJob(testJob, null, 0, "key-1");
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(null, "key-1"))
+        .thenReturn(Optional.of(first));
+
+    // Act & Assert
+    assertThrows(
+        IdempotencyKeyConflictException.class,
+        () -> jobService.runAsJob(testJob, null, 9, "key-1"));
+  }
+
+  @Test
+  void key_of_finished_job_is_released_and_reused() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job finished =
+        Job.builder().id(5L).status("complete").idempotencyKey("key-1").requestHash("x").build();
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(null, "key-1"))
+        .thenReturn(Optional.of(finished));
+
+    // Act
+    Job job = jobService.runAsJob(testJob, null, 0, "key-1");
+
+    // Assert
+    verify(jobsRepository).releaseIdempotencyKey(5L);
+    assertEquals("queued", job.getStatus());
+    assertEquals("key-1", job.getIdempotencyKey());
+    verify(self).runJobAsync(job, testJob);
+  }
+
+  @Test
+  void concurrent_launch_with_same_key_returns_the_job_saved_first() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    when(jobQueueService.payload(testJob)).thenReturn("{}");
+    Job winner = jobService.runAsJob(testJob, null, 0, "key-1");
+    winner.setId(5L);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(null, "key-1"))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(winner));
+    when(jobsRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("JOBS_IDEMPOTENCY_KEY_UK"));
+
+    // Act
+    Job job = jobService.runAsJob(testJob, null, 0, "key-1");
+
+    // Assert
+    assertEquals(winner, job);
+    verify(self, times(1)).runJobAsync(any(), any());
+    verify(jobMetrics, times(1)).submitted(testJob);
+  }
+
+  @Test
+  void same_key_from_another_user_launches_another_job() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", self);
+    User alice = User.builder().id(1L).build();
+    User bob = User.builder().id(2L).build();
+    when(currentUserService.getUser()).thenReturn(alice, bob);
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    when(jobQueueService.payload(testJob)).thenReturn("{}");
+    Job first = jobService.runAsJob(testJob, null, 0, "key-1");
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(alice, "key-1"))
+        .thenReturn(Optional.of(first));
+
+    // Act
+    Job second = jobService.runAsJob(testJob, null, 0, "key-1");
+
+    // Assert
+    assertEquals(bob, second.getCreatedBy());
+    verify(jobsRepository).findByCreatedByAndIdempotencyKey(bob, "key-1");
+    verify(jobsRepository).save(first);
+    verify(jobsRepository).save(second);
+    verify(jobMetrics, times(2)).submitted(testJob);
+  }
+
+  @Test
+  void only_durable_jobs_take_an_idempotency_key() {
+    // Act & Assert
+    assertThrows(
+        IdempotencyKeyNotSupportedException.class,
+        () -> jobService.runAsJob(ctx -> {}, null, 0, "key-1"));
+    verify(jobsRepository, never()).save(any());
+    verify(jobMetrics, never()).submitted(any());
+  }
+}
@@ -0,0 +1,158 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.RecurringJob;
+import edu.ucsb.cs156.example.repositories.RecurringJobsRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RecurringJobRegistryTests {
+
+  @Mock private RecurringJobsRepository recurringJobsRepository;
+
+  @Mock private JobService jobService;
+
+  @InjectMocks private RecurringJobRegistry registry;
+
+  private final JobContextConsumer job = ctx -> {};
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(registry, "staleAfterMs", 86_400_000L);
+  }
+
+  @Test
+  void claimed_run_is_started_as_a_job_and_recorded() {
+    // Arrange
+    RecurringJobDefinition definition =
+        RecurringJobDefinition.builder()
+            .name("rollup")
+            .fixedRate(Duration.ofMinutes(10))
+            .timeout(Duration.ofMinutes(1))
+            .priority(3)
+            .job(job)
+            .build();
+    Instant scheduled = Instant.parse("2024-01-01T00:00:00Z");
+    when(recurringJobsRepository.claimRun(eq("rollup"), any(), any(), any())).thenReturn(1);
+    Job started = Job.builder().id(42L).status("running").build();
+    when(jobService.runAsJob(job, Duration.ofMinutes(1), 3)).thenReturn(started);
+
+    // Act
+    Job result = registry.fire(definition, scheduled);
+
+    // Assert
+    assertEquals(started, result);
+    ArgumentCaptor<ZonedDateTime> firedAt = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> firedBefore = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(recurringJobsRepository)
+        .claimRun(eq("rollup"), firedAt.capture(), firedBefore.capture(), any());
+    assertEquals(scheduled, firedAt.getValue().toInstant());
+    assertEquals(scheduled.minus(Duration.ofMinutes(5)), firedBefore.getValue().toInstant());
+    verify(recurringJobsRepository).recordJob("rollup", 42L);
+  }
+
+  @Test
+  void run_claimed_elsewhere_or_overlapping_is_skipped() {
+    // Arrange
+    RecurringJobDefinition definition =
+        RecurringJobDefinition.builder().name("rollup").cron("0 0 * * * *").job(job).build();
+    when(recurringJobsRepository.claimRun(any(), any(), any(), any())).thenReturn(0);
+
+    // Act
+    Job result = registry.fire(definition, Instant.parse("2024-01-01T00:00:00Z"));
+
+    // Assert
+    assertNull(result);
+    verify(jobService, never()).runAsJob(any(), any(), eq(0));
+    verify(recurringJobsRepository, never()).recordJob(any(), anyLong());
+  }
+
+  @Test
+  void cron_runs_within_half_their_interval_are_the_same_run() {
+    // Arrange
+    RecurringJobDefinition definition =
+        RecurringJobDefinition.builder().name("hourly").cron("0 0 * * * *").job(job).build();
+    Instant scheduled =
+        ZonedDateTime.of(2024, 1, 1, 3, 0, 0, 0, ZoneId.systemDefault()).toInstant();
+    when(recurringJobsRepository.claimRun(any(), any(), any(), any())).thenReturn(0);
+
+    // Act
+    registry.fire(definition, scheduled);
+
+    // Assert
+    ArgumentCaptor<ZonedDateTime> firedBefore = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(recurringJobsRepository).claimRun(any(), any(), firedBefore.capture(), any());
+    assertEquals(scheduled.minus(Duration.ofMinutes(30)), firedBefore.getValue().toInstant());
+  }
+
+  @Test
+  void configureTasks_schedules_each_definition_and_creates_its_row() {
+    // Arrange
+    ReflectionTestUtils.setField(
+        registry,
+        "definitions",
+        List.of(
+            RecurringJobDefinition.builder().name("a").cron("0 0 * * * *").job(job).build(),
+            RecurringJobDefinition.builder()
+                .name("b")
+                .fixedRate(Duration.ofSeconds(30))
+                .job(job)
+                .build()));
+    when(recurringJobsRepository.existsById("a")).thenReturn(true);
+    ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+
+    // Act
+    registry.configureTasks(registrar);
+
+    // Assert
+    assertEquals(2, registrar.getTriggerTaskList().size());
+    verify(recurringJobsRepository, never()).save(RecurringJob.builder().name("a").build());
+    verify(recurringJobsRepository).save(RecurringJob.builder().name("b").build());
+  }
+
+  @Test
+  void configureTasks_rejects_invalid_definitions() {
+    // Arrange
+    RecurringJobDefinition both =
+        RecurringJobDefinition.builder()
+            .name("both")
+            .cron("0 0 * * * *")
+            .fixedRate(Duration.ofSeconds(1))
+            .job(job)
+            .build();
+    RecurringJobDefinition once =
+        RecurringJobDefinition.builder().name("dup").cron("0 0 * * * *").job(job).build();
+
+    // Act & Assert
+    ReflectionTestUtils.setField(registry, "definitions", List.of(both));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> registry.configureTasks(new ScheduledTaskRegistrar()));
+    ReflectionTestUtils.setField(registry, "definitions", List.of(once, once));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> registry.configureTasks(new ScheduledTaskRegistrar()));
+  }
+}